@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Dial's bucket queue for Dijkstra over small integer distances. A search that settles a town at
+ * distance d only ever queues keys from d to d + maxStep, so maxStep + 1 buckets used round-robin
+ * hold every key, and taking the smallest is a walk forward to the next non-empty bucket. Each
+ * bucket is a doubly linked list threaded through int arrays, so nothing is allocated per item and
+ * decrease-key is O(1). A whole search costs O(m + n + largest distance), against O(m log n) for
+ * a binary heap.
+ * Keys must never be smaller than the key last polled (before the first poll, than the first key
+ * queued), nor larger by more than maxStep.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class BucketQueue implements IntPriorityQueue {
+
+	// Variables
+	private final int[] heads; // bucket -> first item, -1 when empty
+	private final int[] next; // item -> next item in its bucket, -1 at the end
+	private final int[] previous; // item -> previous item in its bucket, -1 at the head
+	private final int[] keys; // item -> key
+	private final boolean[] queued; // item -> true while in the queue
+	private int size;
+	private int current = -1; // key of the bucket the walk is at, -1 until the first item is queued
+
+	/**
+	 * Constructor
+	 * @param capacity the number of distinct items the queue can hold
+	 * @param maxStep the largest gap between the key last polled and a key queued after it, the
+	 * longest road for Dijkstra
+	 * @throws IllegalArgumentException if maxStep is negative
+	 */
+	public BucketQueue(int capacity, int maxStep) {
+		if (maxStep < 0) {
+			throw new IllegalArgumentException("maxStep must not be negative: " + maxStep);
+		}
+		heads = new int[maxStep + 1];
+		next = new int[capacity];
+		previous = new int[capacity];
+		keys = new int[capacity];
+		queued = new boolean[capacity];
+		Arrays.fill(heads, -1);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int item) {
+		return queued[item];
+	}
+
+	@Override
+	public boolean insertOrDecrease(int item, int key) {
+		if (queued[item]) {
+			if (key >= keys[item]) {
+				return false;
+			}
+			unlink(item);
+		}
+		else {
+			if (current == -1) {
+				current = key; // The first key of a search starts the walk
+			}
+			queued[item] = true;
+			size++;
+		}
+		keys[item] = key;
+		int bucket = key % heads.length;
+		int head = heads[bucket];
+		next[item] = head;
+		previous[item] = -1;
+		if (head != -1) {
+			previous[head] = item;
+		}
+		heads[bucket] = item;
+		return true;
+	}
+
+	@Override
+	public int poll() {
+		int bucket = current % heads.length;
+		while (heads[bucket] == -1) {
+			current++;
+			bucket = bucket + 1 == heads.length? 0: bucket + 1;
+		}
+		int item = heads[bucket];
+		unlink(item);
+		queued[item] = false;
+		size--;
+		return item;
+	}
+
+	@Override
+	public void clear() {
+		for (int bucket = 0; bucket < heads.length && size > 0; bucket++) {
+			for (int item = heads[bucket]; item != -1; item = next[item]) {
+				queued[item] = false;
+				size--;
+			}
+		}
+		Arrays.fill(heads, -1);
+		current = -1;
+	}
+
+	/**
+	 * Take an item out of its bucket's list
+	 * @param item the item to unlink
+	 */
+	private void unlink(int item) {
+		int before = previous[item];
+		int after = next[item];
+		if (before == -1) {
+			heads[keys[item] % heads.length] = after;
+		}
+		else {
+			next[before] = after;
+		}
+		if (after != -1) {
+			previous[after] = before;
+		}
+	}
+
+}
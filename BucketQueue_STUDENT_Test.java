@@ -0,0 +1,107 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class BucketQueue_STUDENT_Test {
+	private BucketQueue queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new BucketQueue(10, 5);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		queue = null;
+	}
+
+	@Test
+	public void testPollInKeyOrder() {
+		queue.insertOrDecrease(1, 0);
+		queue.insertOrDecrease(3, 2);
+		queue.insertOrDecrease(7, 5);
+		queue.insertOrDecrease(4, 4);
+		assertEquals(4, queue.size());
+		assertEquals(1, queue.poll());
+		queue.insertOrDecrease(8, 1);
+		assertEquals(8, queue.poll());
+		assertEquals(3, queue.poll());
+		queue.insertOrDecrease(9, 7); // Wraps around the buckets
+		assertEquals(4, queue.poll());
+		assertEquals(7, queue.poll());
+		assertEquals(9, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		queue.insertOrDecrease(2, 0);
+		queue.insertOrDecrease(5, 4);
+		queue.insertOrDecrease(6, 3);
+		assertFalse(queue.insertOrDecrease(5, 4));
+		assertTrue(queue.insertOrDecrease(5, 1));
+		assertEquals(3, queue.size());
+		assertEquals(2, queue.poll());
+		assertEquals(5, queue.poll());
+		assertTrue(queue.contains(6));
+		assertFalse(queue.contains(5));
+	}
+
+	@Test
+	public void testClear() {
+		queue.insertOrDecrease(0, 3);
+		queue.insertOrDecrease(1, 4);
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertFalse(queue.contains(0));
+		queue.insertOrDecrease(1, 0); // A new search may start from a smaller key
+		assertEquals(1, queue.poll());
+	}
+
+	@Test
+	public void testNegativeStep() {
+		try {
+			new BucketQueue(10, -1);
+			fail("A negative step should be rejected");
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testSameDistancesAsHeap() {
+		Graph big = new Graph();
+		Town[] towns = new Town[300];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("T" + i);
+			big.addVertex(towns[i]);
+		}
+		Random random = new Random(11);
+		for (int i = 0; i < 1000; i++) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a != b) {
+				big.addEdge(towns[a], towns[b], random.nextInt(30), "R" + i);
+			}
+		}
+		CompactGraph compact = big.snapshot();
+		assertTrue(compact.usesBucketQueue());
+		int n = compact.townCount();
+		int[] expected = new int[n];
+		int[] distances = new int[n];
+		int[] previousArcs = new int[n];
+		IntPriorityQueue buckets = compact.newQueue();
+		for (int source = 0; source < n; source += 37) {
+			compact.search(source, -1, expected, previousArcs, new IndexedMinHeap(n));
+			compact.search(source, -1, distances, previousArcs, buckets);
+			assertArrayEquals(expected, distances);
+		}
+	}
+
+}
@@ -0,0 +1,618 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable compressed-sparse-row (CSR) copy of a town graph for read-heavy use. Towns get dense
+ * int ids in name order, the roads leaving town v are the arcs offsets[v] to offsets[v + 1] - 1, and
+ * each undirected road is stored as two arcs. Searches only touch int arrays, so they do not follow
+ * Town or Road references and do not box distances.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class CompactGraph {
+
+	/** Distance reported for a town that cannot be reached */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/** Longest road for which searches use a BucketQueue instead of a binary heap */
+	public static final int BUCKET_QUEUE_LIMIT = 4096;
+
+	/**
+	 * Receives the towns a bounded search settles
+	 */
+	public interface TownVisitor {
+
+		/**
+		 * Called for each town settled, closest first
+		 * @param town the town id
+		 * @param distance the distance of the town from the source
+		 */
+		void visit(int town, int distance);
+	}
+
+	// Variables
+	private final String[] townNames; // town id -> town name
+	private final Town[] towns; // town id -> the town of the graph the snapshot was taken from
+	private final Map<String, Integer> townIds; // town name -> town id
+	private final int[] offsets; // town id -> first arc, with one extra entry at the end
+	private final int[] targets; // arc -> town id at the other end
+	private final int[] weights; // arc -> distance in miles
+	private final int[] arcRoads; // arc -> road id
+	private final String[] roadNames; // road id -> road name
+	private final int maxWeight; // longest road, -1 if a road has a negative distance
+	private volatile ConnectedComponents components; // labelled on first use
+
+	/**
+	 * Constructor, copies the towns and roads of the graph
+	 * @param graph the graph to copy
+	 */
+	public CompactGraph(GraphInterface<Town, Road> graph) {
+		townNames = new String[graph.vertexSet().size()];
+		int id = 0;
+		for (Town t: graph.vertexSet()) {
+			townNames[id++] = t.getName();
+		}
+		Arrays.sort(townNames);
+		townIds = new HashMap<>(townNames.length * 2);
+		for (int i = 0; i < townNames.length; i++) {
+			townIds.put(townNames[i], i);
+		}
+		towns = new Town[townNames.length];
+		for (Town t: graph.vertexSet()) {
+			towns[townIds.get(t.getName())] = t;
+		}
+
+		// Count the roads of each town, then turn the counts into offsets
+		offsets = new int[townNames.length + 1];
+		for (Road r: graph.edgeSet()) {
+			offsets[townIds.get(r.getSource().getName()) + 1]++;
+			offsets[townIds.get(r.getDestination().getName()) + 1]++;
+		}
+		for (int i = 0; i < townNames.length; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int arcs = offsets[townNames.length];
+		targets = new int[arcs];
+		weights = new int[arcs];
+		arcRoads = new int[arcs];
+		roadNames = new String[arcs / 2];
+		int[] next = Arrays.copyOf(offsets, townNames.length);
+		int road = 0;
+		for (Road r: graph.edgeSet()) {
+			int source = townIds.get(r.getSource().getName());
+			int destination = townIds.get(r.getDestination().getName());
+			addArc(next[source]++, destination, r.getWeight(), road);
+			addArc(next[destination]++, source, r.getWeight(), road);
+			roadNames[road++] = r.getName();
+		}
+		maxWeight = longest(weights);
+	}
+
+	/**
+	 * Constructor for a copy of a snapshot with other road distances, sharing all but the distances
+	 * @param graph the snapshot to copy
+	 * @param weights arc -> distance in miles
+	 */
+	private CompactGraph(CompactGraph graph, int[] weights) {
+		townNames = graph.townNames;
+		towns = graph.towns;
+		townIds = graph.townIds;
+		offsets = graph.offsets;
+		targets = graph.targets;
+		this.weights = weights;
+		arcRoads = graph.arcRoads;
+		roadNames = graph.roadNames;
+		maxWeight = longest(weights);
+		components = graph.components; // Distances do not change which towns are connected
+	}
+
+	/**
+	 * Return a copy of this snapshot with the distances of some roads changed to their current
+	 * ones. Only the distances are copied, so this is far cheaper than a new snapshot, and this
+	 * snapshot is left as it is for the queries still running over it
+	 * @param roads roads of the graph the snapshot was taken from, with the same towns at their ends
+	 * @return the updated snapshot
+	 */
+	CompactGraph withRoadWeights(Iterable<Road> roads) {
+		int[] patched = weights.clone();
+		for (Road r: roads) {
+			int source = townIds.get(r.getSource().getName());
+			int destination = townIds.get(r.getDestination().getName());
+			for (int arc = offsets[source]; arc < offsets[source + 1]; arc++) {
+				if (targets[arc] == destination) {
+					patched[arc] = r.getWeight();
+				}
+			}
+			for (int arc = offsets[destination]; arc < offsets[destination + 1]; arc++) {
+				if (targets[arc] == source) {
+					patched[arc] = r.getWeight();
+				}
+			}
+		}
+		return new CompactGraph(this, patched);
+	}
+
+	/**
+	 * Return the longest distance
+	 * @param weights arc -> distance
+	 * @return the longest distance, -1 if one is negative
+	 */
+	private static int longest(int[] weights) {
+		int longest = 0;
+		for (int w: weights) {
+			longest = w < 0 || longest < 0? -1: Math.max(longest, w);
+		}
+		return longest;
+	}
+
+	/**
+	 * Fill in one arc
+	 * @param arc the arc index
+	 * @param target the town id the arc leads to
+	 * @param weight the distance of the arc
+	 * @param road the road id the arc belongs to
+	 */
+	private void addArc(int arc, int target, int weight, int road) {
+		targets[arc] = target;
+		weights[arc] = weight;
+		arcRoads[arc] = road;
+	}
+
+	/**
+	 * Return the number of towns
+	 */
+	public int townCount() {
+		return townNames.length;
+	}
+
+	/**
+	 * Return the number of roads
+	 */
+	public int roadCount() {
+		return roadNames.length;
+	}
+
+	/**
+	 * Return the distance of the longest road
+	 * @return maxWeight the longest distance, -1 if a road has a negative distance
+	 */
+	public int maxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Return true if every road is short enough for searches to use Dial's buckets
+	 */
+	public boolean usesBucketQueue() {
+		return maxWeight >= 0 && maxWeight <= BUCKET_QUEUE_LIMIT;
+	}
+
+	/**
+	 * Return an empty queue for a Dijkstra over this graph: Dial's buckets when every road is
+	 * short, since they need no comparisons, otherwise a binary heap
+	 * @return the queue, with room for every town
+	 */
+	public IntPriorityQueue newQueue() {
+		return newQueue(townNames.length, maxWeight);
+	}
+
+	/**
+	 * Return an empty queue for a Dijkstra over a graph: Dial's buckets when every road is at most
+	 * BUCKET_QUEUE_LIMIT long, otherwise a binary heap
+	 * @param capacity the number of towns
+	 * @param maxWeight the longest road, -1 if a road has a negative distance
+	 * @return the queue, with room for every town
+	 */
+	static IntPriorityQueue newQueue(int capacity, int maxWeight) {
+		if (maxWeight >= 0 && maxWeight <= BUCKET_QUEUE_LIMIT) {
+			return new BucketQueue(capacity, maxWeight);
+		}
+		return new IndexedMinHeap(capacity);
+	}
+
+	/**
+	 * Return the id of the town with the given name
+	 * @param townName name of the town
+	 * @return the town id, or -1 if the town is not in the graph
+	 */
+	public int idOf(String townName) {
+		Integer id = townIds.get(townName);
+		return id == null? -1: id;
+	}
+
+	/**
+	 * Return the name of the town with the given id
+	 * @param town the town id
+	 */
+	public String townName(int town) {
+		return townNames[town];
+	}
+
+	/**
+	 * Return the town of the graph the snapshot was taken from
+	 * @param town the town id
+	 */
+	Town town(int town) {
+		return towns[town];
+	}
+
+	/**
+	 * Return the first arc leaving the town
+	 * @param town the town id
+	 */
+	public int firstArc(int town) {
+		return offsets[town];
+	}
+
+	/**
+	 * Return the arc after the last one leaving the town
+	 * @param town the town id
+	 */
+	public int endArc(int town) {
+		return offsets[town + 1];
+	}
+
+	/**
+	 * Return the town at the end of the arc
+	 * @param arc the arc index
+	 */
+	public int target(int arc) {
+		return targets[arc];
+	}
+
+	/**
+	 * Return the distance of the arc
+	 * @param arc the arc index
+	 */
+	public int weight(int arc) {
+		return weights[arc];
+	}
+
+	/**
+	 * Return the id of the road the arc belongs to, the same for both arcs of a road
+	 * @param arc the arc index
+	 */
+	int road(int arc) {
+		return arcRoads[arc];
+	}
+
+	/**
+	 * Return the name of the road the arc belongs to
+	 * @param arc the arc index
+	 */
+	public String roadName(int arc) {
+		return roadNames[arcRoads[arc]];
+	}
+
+	/**
+	 * Return the connected components of the snapshot. They are labelled on the first call and
+	 * only read after that, so calls from many threads take no lock
+	 */
+	public ConnectedComponents components() {
+		ConnectedComponents current = components;
+		if (current == null) {
+			current = new ConnectedComponents(this);
+			components = current; // Threads that race here compute the same labels
+		}
+		return current;
+	}
+
+	/**
+	 * Return true if a path of roads joins the two towns
+	 * @param town1 id of one town
+	 * @param town2 id of the other town
+	 */
+	public boolean connected(int town1, int town2) {
+		return components().connected(town1, town2);
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param source id of the town where the path starts
+	 * @param destination id of the town where the path ends
+	 * @return the distance, or UNREACHABLE if there is no path
+	 */
+	public int distance(int source, int destination) {
+		return search(source, destination, SearchWorkspace.forThread(townNames.length, maxWeight));
+	}
+
+	/**
+	 * Hand each town within the given distance of a town to the visitor as the search settles it,
+	 * closest first. Roads that lead past the budget are not followed, and the labels are the
+	 * stamped ones of the calling thread, so the work depends on the region reached and not on the
+	 * size of the graph. A search the visitor runs gets labels of its own
+	 * @param source id of the town the distances are measured from
+	 * @param budget the largest distance to report
+	 * @param visitor receives each town and its distance
+	 */
+	public void reachableWithin(int source, int budget, TownVisitor visitor) {
+		if (budget < 0) {
+			return;
+		}
+		SearchWorkspace workspace = SearchWorkspace.forThread(townNames.length, maxWeight);
+		workspace.start();
+		workspace.inUse = true;
+		int[] distances = workspace.distances;
+		IntPriorityQueue queue = workspace.queue;
+		try {
+			workspace.label(source, 0, -1);
+			queue.insertOrDecrease(source, 0);
+			while (queue.isEmpty() == false) {
+				int town = queue.poll();
+				int distance = distances[town];
+				visitor.visit(town, distance);
+				for (int arc = offsets[town]; arc < offsets[town + 1]; arc++) {
+					int t = targets[arc];
+					long weight = (long) distance + weights[arc];
+					if (weight > budget) {
+						continue; // Past the budget, never queued
+					}
+					if (workspace.isLabelled(t) == false || weight < distances[t]) {
+						workspace.label(t, (int) weight, arc);
+						queue.insertOrDecrease(t, (int) weight);
+					}
+				}
+			}
+		}
+		finally {
+			queue.clear();
+			workspace.inUse = false;
+		}
+	}
+
+	/**
+	 * Return the shortest distances from each source town to each destination town. One search
+	 * is run per source, in parallel, and each stops once every destination is settled. The
+	 * searches use the stamped labels of their thread, so each costs the towns it reaches
+	 * @param sources ids of the towns where the paths start
+	 * @param destinations ids of the towns where the paths end
+	 * @return table source index -> destination index -> distance, UNREACHABLE if there is no path
+	 */
+	public int[][] distanceTable(int[] sources, int[] destinations) {
+		int n = townNames.length;
+		boolean[] wanted = new boolean[n];
+		int wantedCount = 0;
+		for (int d: destinations) {
+			if (wanted[d] == false) {
+				wanted[d] = true;
+				wantedCount++;
+			}
+		}
+		final int count = wantedCount;
+		int[][] table = new int[sources.length][];
+		IntStream.range(0, sources.length).parallel().forEach(i -> {
+			SearchWorkspace workspace = SearchWorkspace.forThread(n, maxWeight);
+			searchAll(sources[i], wanted, count, workspace);
+			int[] row = new int[destinations.length];
+			for (int j = 0; j < destinations.length; j++) {
+				int d = destinations[j];
+				row[j] = workspace.isLabelled(d)? workspace.distances[d]: UNREACHABLE;
+			}
+			table[i] = row;
+		});
+		return table;
+	}
+
+	/**
+	 * Find the shortest path from town A to town B, in the same form as Graph.shortestPath
+	 * @param sourceVertex name of town A where the path starts
+	 * @param destinationVertex name of town B where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
+	 */
+	public ArrayList<String> shortestPath(String sourceVertex, String destinationVertex) {
+		return shortestRoute(sourceVertex, destinationVertex).toPaths();
+	}
+
+	/**
+	 * Find the shortest path from town A to town B, in the same form as Graph.shortestPath
+	 * @param sourceVertex town A where the path starts
+	 * @param destinationVertex town B where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		return shortestPath(sourceVertex.getName(), destinationVertex.getName());
+	}
+
+	/**
+	 * Find the shortest route from town A to town B
+	 * @param sourceVertex name of town A where the route starts
+	 * @param destinationVertex name of town B where the route ends
+	 * @return the route, Route.NONE if town B cannot be reached
+	 */
+	public Route shortestRoute(String sourceVertex, String destinationVertex) {
+		int source = idOf(sourceVertex);
+		int destination = idOf(destinationVertex);
+		if (source == -1 || destination == -1) {
+			return Route.NONE;
+		}
+		SearchWorkspace workspace = SearchWorkspace.forThread(townNames.length, maxWeight);
+		if (search(source, destination, workspace) == UNREACHABLE) {
+			return Route.NONE;
+		}
+		return route(source, destination, workspace.previousArcs);
+	}
+
+	/**
+	 * Return the route ending at the destination, following the previous arcs back to the source
+	 * @param source id of the town where the route starts
+	 * @param destination id of the town where the route ends
+	 * @param previousArcs town id -> arc used to reach the town
+	 * @return the route from source to destination
+	 */
+	Route route(int source, int destination, int[] previousArcs) {
+		int length = 0;
+		for (int town = destination; town != source; town = arcSource(previousArcs[town])) {
+			length++;
+		}
+		int[] towns = new int[length + 1];
+		int[] arcs = new int[length];
+		towns[length] = destination;
+		for (int town = destination; town != source; town = arcSource(previousArcs[town])) {
+			arcs[--length] = previousArcs[town];
+			towns[length] = arcSource(previousArcs[town]);
+		}
+		return route(towns, arcs, arcs.length);
+	}
+
+	/**
+	 * Return the route through the given towns along the given arcs
+	 * @param towns ids of the towns along the route, one more than the arcs
+	 * @param arcs arcs[i] is the road between towns[i] and towns[i + 1], stored either way
+	 * @param count the number of arcs to use
+	 * @return the route
+	 */
+	Route route(int[] towns, int[] arcs, int count) {
+		String[] names = new String[count + 1];
+		String[] roads = new String[count];
+		int[] distances = new int[count];
+		names[0] = townNames[towns[0]];
+		for (int i = 0; i < count; i++) {
+			names[i + 1] = townNames[towns[i + 1]];
+			roads[i] = roadName(arcs[i]);
+			distances[i] = weights[arcs[i]];
+		}
+		return new Route(names, roads, distances);
+	}
+
+	/**
+	 * Dijkstra over the labels of a thread's workspace, stopping once the destination is settled.
+	 * Labels left by earlier queries are ignored rather than cleared, so a query costs the towns it
+	 * reaches and not the size of the graph. The previous arcs along the path found stay valid
+	 * until the thread runs its next query
+	 * @param source id of the town where the search starts
+	 * @param destination id of the town to stop at
+	 * @param workspace the labels of this thread
+	 * @return the distance to the destination, UNREACHABLE if it cannot be reached
+	 */
+	private int search(int source, int destination, SearchWorkspace workspace) {
+		workspace.start();
+		int[] distances = workspace.distances;
+		IntPriorityQueue queue = workspace.queue;
+		workspace.label(source, 0, -1);
+		queue.insertOrDecrease(source, 0);
+		while (queue.isEmpty() == false) {
+			int town = queue.poll();
+			if (town == destination) {
+				break;
+			}
+			int distance = distances[town];
+			for (int arc = offsets[town]; arc < offsets[town + 1]; arc++) {
+				int t = targets[arc];
+				int weight = distance + weights[arc];
+				if (workspace.isLabelled(t) == false || weight < distances[t]) {
+					workspace.label(t, weight, arc);
+					queue.insertOrDecrease(t, weight);
+				}
+			}
+		}
+		queue.clear();
+		return workspace.isLabelled(destination)? distances[destination]: UNREACHABLE;
+	}
+
+	/**
+	 * Dijkstra over the arrays, stopping once the destination is settled
+	 * @param source id of the town where the search starts
+	 * @param destination id of the town to stop at, or -1 to label every town
+	 * @param distances town id -> distance, filled in by the search
+	 * @param previousArcs town id -> arc used to reach the town, filled in by the search
+	 * @return the distance to the destination, UNREACHABLE if it cannot be reached
+	 */
+	int search(int source, int destination, int[] distances, int[] previousArcs) {
+		return search(source, destination, distances, previousArcs, newQueue());
+	}
+
+	/**
+	 * Dijkstra over the arrays with a queue supplied by the caller, so it can be reused
+	 * @param source id of the town where the search starts
+	 * @param destination id of the town to stop at, or -1 to label every town
+	 * @param distances town id -> distance, filled in by the search
+	 * @param previousArcs town id -> arc used to reach the town, filled in by the search
+	 * @param queue an empty queue from newQueue, left empty when the search ends
+	 * @return the distance to the destination, UNREACHABLE if it cannot be reached
+	 */
+	int search(int source, int destination, int[] distances, int[] previousArcs, IntPriorityQueue queue) {
+		Arrays.fill(distances, UNREACHABLE);
+		Arrays.fill(previousArcs, -1);
+		distances[source] = 0;
+		queue.insertOrDecrease(source, 0);
+		while (queue.isEmpty() == false) {
+			int town = queue.poll();
+			if (town == destination) {
+				break;
+			}
+			int distance = distances[town];
+			for (int arc = offsets[town]; arc < offsets[town + 1]; arc++) {
+				int t = targets[arc];
+				int weight = distance + weights[arc];
+				if (weight < distances[t]) {
+					distances[t] = weight;
+					previousArcs[t] = arc;
+					queue.insertOrDecrease(t, weight);
+				}
+			}
+		}
+		queue.clear();
+		return destination == -1? 0: distances[destination];
+	}
+
+	/**
+	 * Dijkstra over the labels of a thread's workspace, stopping once every wanted town is settled.
+	 * A wanted town the search did not label cannot be reached
+	 * @param source id of the town where the search starts
+	 * @param wanted town id -> true if the search must settle the town
+	 * @param wantedCount the number of wanted towns
+	 * @param workspace the labels of this thread, holding the distances found
+	 */
+	private void searchAll(int source, boolean[] wanted, int wantedCount, SearchWorkspace workspace) {
+		workspace.start();
+		if (wantedCount == 0) {
+			return;
+		}
+		int[] distances = workspace.distances;
+		IntPriorityQueue queue = workspace.queue;
+		workspace.label(source, 0, -1);
+		queue.insertOrDecrease(source, 0);
+		int left = wantedCount;
+		while (queue.isEmpty() == false) {
+			int town = queue.poll();
+			if (wanted[town] && --left == 0) {
+				break;
+			}
+			int distance = distances[town];
+			for (int arc = offsets[town]; arc < offsets[town + 1]; arc++) {
+				int t = targets[arc];
+				int weight = distance + weights[arc];
+				if (workspace.isLabelled(t) == false || weight < distances[t]) {
+					workspace.label(t, weight, arc);
+					queue.insertOrDecrease(t, weight);
+				}
+			}
+		}
+		queue.clear();
+	}
+
+	/**
+	 * Return the town the arc leaves, found by a binary search over the offsets
+	 * @param arc the arc index
+	 */
+	int arcSource(int arc) {
+		int low = 0;
+		int high = townNames.length - 1;
+		while (low < high) { // last town whose first arc is not after the arc
+			int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= arc) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,120 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class CompactGraph_STUDENT_Test {
+	private Graph graph;
+	private CompactGraph compact;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+		compact = new CompactGraph(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		compact = null;
+	}
+
+	@Test
+	public void testCounts() {
+		assertEquals(12, compact.townCount());
+		assertEquals(12, compact.roadCount());
+		assertEquals(-1, compact.idOf("Town_13"));
+		assertEquals("Town_4", compact.townName(compact.idOf("Town_4")));
+	}
+
+	@Test
+	public void testSameAsGraph() {
+		for (int i = 1; i < 12; i++) {
+			for (int j = 1; j < 12; j++) {
+				if (i != j) {
+					assertEquals(graph.shortestPath(town[i], town[j]), compact.shortestPath(town[i], town[j]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShortestPath() {
+		ArrayList<String> path = compact.shortestPath("Town_4", "Town_11");
+		assertEquals(3, path.size());
+		assertEquals("Town_4 via Road_6 to Town_8 3 mi", path.get(0));
+		assertEquals("Town_8 via Road_9 to Town_10 2 mi", path.get(1));
+		assertEquals("Town_10 via Road_11 to Town_11 3 mi", path.get(2));
+	}
+
+	@Test
+	public void testDistance() {
+		assertEquals(8, compact.distance(compact.idOf("Town_1"), compact.idOf("Town_10")));
+		assertEquals(CompactGraph.UNREACHABLE, compact.distance(compact.idOf("Town_1"), compact.idOf("Town_12")));
+		assertTrue(compact.shortestPath("Town_1", "Town_12").isEmpty());
+	}
+
+	@Test
+	public void testRepeatedQueries() {
+		// Each query reuses the labels of the last one, which must not leak into its answer
+		for (int round = 0; round < 3; round++) {
+			assertEquals(8, compact.distance(compact.idOf("Town_1"), compact.idOf("Town_10")));
+			assertEquals(CompactGraph.UNREACHABLE, compact.distance(compact.idOf("Town_1"), compact.idOf("Town_12")));
+			assertEquals(0, compact.distance(compact.idOf("Town_6"), compact.idOf("Town_6")));
+			assertEquals(3, compact.shortestPath("Town_4", "Town_11").size());
+		}
+	}
+
+	@Test
+	public void testSnapshotPatchedWithWeights() {
+		CompactGraph before = graph.snapshot();
+		assertSame(before, graph.snapshot());
+		graph.getEdge(town[8], town[10]).setWeight(20);
+		CompactGraph after = graph.snapshot();
+		assertNotSame(before, after);
+		assertEquals(8, before.distance(before.idOf("Town_1"), before.idOf("Town_10")));
+		assertEquals(11, after.distance(after.idOf("Town_1"), after.idOf("Town_10")));
+		graph.setCoordinates(town[1], 1, 2);
+		assertSame(after, graph.snapshot());
+
+		// A road too long for the bucket queue switches the searches to a binary heap
+		graph.getEdge(town[1], town[5]).setWeight(CompactGraph.BUCKET_QUEUE_LIMIT + 1);
+		after = graph.snapshot();
+		CompactGraph rebuilt = new CompactGraph(graph);
+		assertEquals(rebuilt.maxWeight(), after.maxWeight());
+		for (int i = 0; i < rebuilt.townCount(); i++) {
+			for (int j = 0; j < rebuilt.townCount(); j++) {
+				assertEquals(rebuilt.distance(i, j), after.distance(i, j));
+			}
+		}
+		assertEquals(rebuilt.shortestPath("Town_1", "Town_10"), after.shortestPath("Town_1", "Town_10"));
+	}
+
+	@Test
+	public void testReachableWithin() {
+		ArrayList<Integer> reached = new ArrayList<>();
+		compact.reachableWithin(compact.idOf("Town_1"), 6, (town, distance) -> {
+			// A search run by the visitor must not disturb the one calling it
+			assertEquals(compact.distance(compact.idOf("Town_1"), town), distance);
+			reached.add(distance);
+		});
+		assertEquals(6, reached.size());
+		for (int i = 1; i < reached.size(); i++) {
+			assertTrue(reached.get(i - 1) <= reached.get(i));
+		}
+		graph.getEdge(town[1], town[3]).setWeight(1);
+		assertSame(town[3], graph.reachableWithin(town[1], 1).keySet().toArray()[1]);
+	}
+
+	@Test
+	public void testSnapshotIsNotChangedByGraph() {
+		graph.addEdge(town[1], town[11], 1, "Road_13");
+		assertEquals(2, compact.shortestPath("Town_1", "Town_11").size());
+	}
+}
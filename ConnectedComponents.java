@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The connected components of a graph snapshot. Every town is labelled with the lowest town id of
+ * its component, once, by a depth-first search; after that the labels are only read, so any number
+ * of threads can ask whether two towns are connected without a lock. A change to the roads gives a
+ * new snapshot and, with it, new components.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class ConnectedComponents {
+
+	// Variables
+	private final CompactGraph graph;
+	private final int[] labels; // town id -> lowest town id of its component
+	private final int[] sizes; // label -> number of towns in its component, 0 for other ids
+	private final int count;
+
+	/**
+	 * Constructor, labels the components of the snapshot
+	 * @param graph the snapshot to label
+	 */
+	public ConnectedComponents(CompactGraph graph) {
+		this.graph = graph;
+		int n = graph.townCount();
+		labels = new int[n];
+		sizes = new int[n];
+		Arrays.fill(labels, -1);
+		int[] stack = new int[n]; // each town is pushed once
+		int components = 0;
+		for (int v = 0; v < n; v++) {
+			if (labels[v] != -1) {
+				continue;
+			}
+			components++;
+			labels[v] = v;
+			int size = 0;
+			stack[size++] = v;
+			while (size > 0) {
+				int town = stack[--size];
+				sizes[v]++;
+				for (int arc = graph.firstArc(town); arc < graph.endArc(town); arc++) {
+					int t = graph.target(arc);
+					if (labels[t] == -1) {
+						labels[t] = v;
+						stack[size++] = t;
+					}
+				}
+			}
+		}
+		count = components;
+	}
+
+	/**
+	 * Return true if a path of roads joins the two towns
+	 * @param town1 id of one town
+	 * @param town2 id of the other town
+	 */
+	public boolean connected(int town1, int town2) {
+		return labels[town1] == labels[town2];
+	}
+
+	/**
+	 * Return true if a path of roads joins the two towns
+	 * @param town1 one town
+	 * @param town2 the other town
+	 * @return false if either town is not in the snapshot
+	 */
+	public boolean connected(Town town1, Town town2) {
+		if (town1 == null || town2 == null) {
+			return false;
+		}
+		int id1 = graph.idOf(town1.getName());
+		int id2 = graph.idOf(town2.getName());
+		return id1 != -1 && id2 != -1 && connected(id1, id2);
+	}
+
+	/**
+	 * Return the number of towns in the component of a town
+	 * @param town the town to look up
+	 * @return the size of its component, 0 if the town is not in the snapshot
+	 */
+	public int sizeOf(Town town) {
+		int id = town == null? -1: graph.idOf(town.getName());
+		return id == -1? 0: sizes[labels[id]];
+	}
+
+	/**
+	 * Return the number of components
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Return the size of every component
+	 * @return sizes an arraylist of the sizes, largest first
+	 */
+	public ArrayList<Integer> sizes() {
+		ArrayList<Integer> list = new ArrayList<>(count);
+		for (int v = 0; v < labels.length; v++) {
+			if (labels[v] == v) {
+				list.add(sizes[v]);
+			}
+		}
+		list.sort(Collections.reverseOrder());
+		return list;
+	}
+
+}
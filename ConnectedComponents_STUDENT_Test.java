@@ -0,0 +1,84 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ConnectedComponents_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testComponentSizes() {
+		assertEquals(Arrays.asList(11, 1), graph.componentSizes());
+		assertTrue(graph.isConnected(town[1], town[6]));
+		assertFalse(graph.isConnected(town[1], town[12]));
+		assertEquals(11, graph.components().sizeOf(town[4]));
+		assertEquals(0, graph.components().sizeOf(new Town("Town_13")));
+	}
+
+	@Test
+	public void testAddEdge() {
+		ConnectedComponents components = graph.components();
+		graph.addEdge(town[12], town[4], 7, "Road_13");
+		// The components already handed out stay as they were
+		assertEquals(2, components.count());
+		assertEquals(1, graph.components().count());
+		assertTrue(graph.isConnected(town[12], town[6]));
+	}
+
+	@Test
+	public void testRemoveEdge() {
+		graph.removeEdge(town[6], town[9], 3, "Road_7");
+		assertEquals(Arrays.asList(10, 1, 1), graph.componentSizes());
+		assertFalse(graph.isConnected(town[6], town[9]));
+		assertTrue(graph.shortestPath(town[1], town[6]).isEmpty());
+		// Taking a road out of a cycle leaves the towns connected
+		graph.removeEdge(town[2], town[11], 6, "Road_12");
+		assertTrue(graph.isConnected(town[2], town[11]));
+	}
+
+	@Test
+	public void testRemoveVertex() {
+		graph.removeVertex(town[12]);
+		assertEquals(1, graph.components().count());
+		graph.removeVertex(town[10]);
+		assertEquals(Arrays.asList(8, 2), graph.componentSizes());
+		assertFalse(graph.isConnected(town[9], town[1]));
+	}
+
+	@Test
+	public void testSnapshotLabels() {
+		CompactGraph compact = graph.snapshot();
+		assertTrue(compact.connected(compact.idOf("Town_1"), compact.idOf("Town_6")));
+		assertFalse(compact.connected(compact.idOf("Town_1"), compact.idOf("Town_12")));
+		// A distance change keeps the labels, a new road gives the next snapshot new ones
+		graph.getEdge(town[6], town[9]).setWeight(9);
+		assertSame(compact.components(), graph.components());
+		assertTrue(graph.isConnected(town[6], town[1]));
+		graph.addEdge(town[12], town[4], 7, "Road_13");
+		assertTrue(graph.isConnected(town[12], town[1]));
+		assertFalse(graph.isConnected(town[1], new Town("Town_13")));
+	}
+
+	@Test
+	public void testNoRoute() {
+		for (SearchMode mode: SearchMode.values()) {
+			assertTrue(graph.shortestPath(town[1], town[12], mode).isEmpty());
+		}
+	}
+}
@@ -0,0 +1,605 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Contraction Hierarchies (CH) over a snapshot of the town graph. Preprocessing contracts the towns
+ * one at a time, least important first, and adds a shortcut road u-w whenever contracting v would
+ * break the only shortest path u-v-w. A query then only needs a bidirectional search that goes
+ * upward in the order from both towns, and the shortcuts on the path found are unpacked back into
+ * the original roads. The hierarchy is immutable once built and can be queried from many threads.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class ContractionHierarchy {
+
+	/** Towns a witness search may settle before it gives up and keeps the shortcut */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+
+	/** Smaller limit used when only estimating how many shortcuts a town would need */
+	private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+	// Variables
+	private final CompactGraph graph;
+	private final int[] ranks; // town id -> position in the contraction order
+	private final int[] upOffsets; // town id -> first upward edge, with one extra entry at the end
+	private final int[] upTargets; // upward edge -> higher ranked town
+	private final int[] upWeights; // upward edge -> distance
+	private final int[] upEdges; // upward edge -> edge id, for unpacking
+	private final int[] edgeFrom, edgeTo; // edge id -> ends
+	private final int[] edgeArc; // edge id -> arc of the snapshot from edgeFrom, -1 for a shortcut
+	private final int[] edgeFirst, edgeSecond; // shortcut edge id -> the two edges it stands for
+	private final int shortcutCount;
+	private final long preprocessingTime;
+	private final ThreadLocal<QueryWorkspace> workspaces;
+
+	/**
+	 * Constructor, contracts every town of the snapshot
+	 * @param graph the snapshot to build the hierarchy over
+	 */
+	public ContractionHierarchy(CompactGraph graph) {
+		long start = System.nanoTime();
+		this.graph = graph;
+		Contraction contraction = new Contraction(graph);
+		contraction.run();
+
+		int n = graph.townCount();
+		int edges = contraction.edgeCount;
+		ranks = contraction.ranks;
+		edgeFrom = Arrays.copyOf(contraction.from, edges);
+		edgeTo = Arrays.copyOf(contraction.to, edges);
+		edgeArc = Arrays.copyOf(contraction.arc, edges);
+		edgeFirst = Arrays.copyOf(contraction.first, edges);
+		edgeSecond = Arrays.copyOf(contraction.second, edges);
+		shortcutCount = contraction.shortcutCount;
+
+		// Every edge is stored once, at its lower ranked end
+		upOffsets = new int[n + 1];
+		for (int e = 0; e < edges; e++) {
+			upOffsets[lower(e) + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			upOffsets[i + 1] += upOffsets[i];
+		}
+		upTargets = new int[edges];
+		upWeights = new int[edges];
+		upEdges = new int[edges];
+		int[] next = Arrays.copyOf(upOffsets, n);
+		for (int e = 0; e < edges; e++) {
+			int low = lower(e);
+			int slot = next[low]++;
+			upTargets[slot] = low == edgeFrom[e]? edgeTo[e]: edgeFrom[e];
+			upWeights[slot] = contraction.weight[e];
+			upEdges[slot] = e;
+		}
+		workspaces = ThreadLocal.withInitial(() -> new QueryWorkspace(n));
+		preprocessingTime = (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * Return the lower ranked end of an edge
+	 * @param e the edge id
+	 */
+	private int lower(int e) {
+		return ranks[edgeFrom[e]] < ranks[edgeTo[e]]? edgeFrom[e]: edgeTo[e];
+	}
+
+	/**
+	 * Return the snapshot the hierarchy was built over
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the number of shortcut roads added by preprocessing
+	 */
+	public int getShortcutCount() {
+		return shortcutCount;
+	}
+
+	/**
+	 * Return how long preprocessing took, in milliseconds
+	 */
+	public long getPreprocessingTime() {
+		return preprocessingTime;
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param source id of the town where the path starts
+	 * @param destination id of the town where the path ends
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(int source, int destination) {
+		QueryWorkspace workspace = workspaces.get();
+		search(source, destination, workspace);
+		return workspace.best;
+	}
+
+	/**
+	 * Find the shortest path from town A to town B, in the same form as Graph.shortestPath
+	 * @param sourceVertex name of town A where the path starts
+	 * @param destinationVertex name of town B where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
+	 */
+	public ArrayList<String> shortestPath(String sourceVertex, String destinationVertex) {
+		return shortestRoute(sourceVertex, destinationVertex).toPaths();
+	}
+
+	/**
+	 * Find the shortest route from town A to town B, with its shortcuts unpacked into roads
+	 * @param sourceVertex name of town A where the route starts
+	 * @param destinationVertex name of town B where the route ends
+	 * @return the route, Route.NONE if town B cannot be reached
+	 */
+	public Route shortestRoute(String sourceVertex, String destinationVertex) {
+		int source = graph.idOf(sourceVertex);
+		int destination = graph.idOf(destinationVertex);
+		if (source == -1 || destination == -1) {
+			return Route.NONE;
+		}
+		QueryWorkspace workspace = workspaces.get();
+		search(source, destination, workspace);
+		if (workspace.best == CompactGraph.UNREACHABLE) {
+			return Route.NONE;
+		}
+
+		// Upward edges from the source to the meeting town, in path order
+		int meeting = workspace.meeting;
+		int count = 0;
+		for (int town = meeting; town != source; town = workspace.forward.previousTown(town)) {
+			count++;
+		}
+		int[] edges = new int[count];
+		int[] starts = new int[count];
+		for (int town = meeting; town != source; ) {
+			int previous = workspace.forward.previousTown(town);
+			edges[--count] = workspace.forward.previousEdges[town];
+			starts[count] = previous;
+			town = previous;
+		}
+		RouteArcs route = new RouteArcs(source);
+		for (int i = 0; i < edges.length; i++) {
+			unpack(edges[i], starts[i], route);
+		}
+		// Then down from the meeting town to the destination
+		for (int town = meeting; town != destination; ) {
+			int next = workspace.backward.previousTown(town);
+			unpack(workspace.backward.previousEdges[town], town, route);
+			town = next;
+		}
+		return graph.route(route.towns, route.arcs, route.size);
+	}
+
+	/**
+	 * Bidirectional upward Dijkstra. Each side stops once its smallest key is no better than the
+	 * best meeting found, leaving the distance and meeting town in the workspace
+	 * @param source id of the town where the path starts
+	 * @param destination id of the town where the path ends
+	 * @param workspace the labels of this thread
+	 */
+	private void search(int source, int destination, QueryWorkspace workspace) {
+		workspace.start();
+		workspace.forward.push(source, 0, -1, -1);
+		workspace.backward.push(destination, 0, -1, -1);
+		while (true) {
+			boolean forwardDone = workspace.forward.heap.isEmpty()
+					|| workspace.forward.heap.peekKey() >= workspace.best;
+			boolean backwardDone = workspace.backward.heap.isEmpty()
+					|| workspace.backward.heap.peekKey() >= workspace.best;
+			if (forwardDone && backwardDone) {
+				return;
+			}
+			if (forwardDone == false) {
+				settle(workspace.forward, workspace.backward, workspace);
+			}
+			if (backwardDone == false) {
+				settle(workspace.backward, workspace.forward, workspace);
+			}
+		}
+	}
+
+	/**
+	 * Settle the closest town of one side and relax its upward edges
+	 * @param side the side to move
+	 * @param other the other side
+	 * @param workspace the labels of this thread
+	 */
+	private void settle(SideLabels side, SideLabels other, QueryWorkspace workspace) {
+		int town = side.heap.poll();
+		int distance = side.distances[town];
+		if (other.isLabelled(town) && (long) distance + other.distances[town] < workspace.best) {
+			workspace.best = distance + other.distances[town];
+			workspace.meeting = town;
+		}
+		for (int e = upOffsets[town]; e < upOffsets[town + 1]; e++) {
+			side.push(upTargets[e], distance + upWeights[e], town, upEdges[e]);
+		}
+	}
+
+	/**
+	 * Add the original roads an edge stands for to the route, walking it from the given town
+	 * @param edge the edge id
+	 * @param start the end of the edge the walk starts from
+	 * @param route the route to add to
+	 */
+	private void unpack(int edge, int start, RouteArcs route) {
+		int[] stack = new int[16];
+		int[] starts = new int[16];
+		int size = 0;
+		stack[size] = edge;
+		starts[size++] = start;
+		while (size > 0) {
+			int e = stack[--size];
+			int from = starts[size];
+			int to = edgeFrom[e] == from? edgeTo[e]: edgeFrom[e];
+			if (edgeArc[e] != -1) {
+				route.add(edgeArc[e], to);
+				continue;
+			}
+			// A shortcut from-middle-to: push the second half first so the first half comes out first
+			int first = edgeFirst[e];
+			int second = edgeSecond[e];
+			if (edgeFrom[first] != from && edgeTo[first] != from) {
+				int swap = first;
+				first = second;
+				second = swap;
+			}
+			int middle = edgeFrom[first] == from? edgeTo[first]: edgeFrom[first];
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			}
+			stack[size] = second;
+			starts[size++] = middle;
+			stack[size] = first;
+			starts[size++] = from;
+		}
+	}
+
+	/**
+	 * The towns and arcs of a route as it is unpacked, growing as needed
+	 */
+	private static class RouteArcs {
+		private int[] towns = new int[16];
+		private int[] arcs = new int[16];
+		private int size;
+
+		/**
+		 * Constructor
+		 * @param source id of the town where the route starts
+		 */
+		RouteArcs(int source) {
+			towns[0] = source;
+		}
+
+		/**
+		 * Add one road to the end of the route
+		 * @param arc an arc of the road
+		 * @param to id of the town the road leads to
+		 */
+		void add(int arc, int to) {
+			if (size + 1 == towns.length) {
+				towns = Arrays.copyOf(towns, towns.length * 2);
+				arcs = Arrays.copyOf(arcs, arcs.length * 2);
+			}
+			arcs[size++] = arc;
+			towns[size] = to;
+		}
+	}
+
+	/**
+	 * Distance labels of one side of a query, reset in constant time by bumping a stamp
+	 */
+	private static class SideLabels {
+		private final int[] distances;
+		private final int[] previousTowns;
+		private final int[] previousEdges;
+		private final int[] stamps; // town id -> query the labels belong to
+		private final IndexedMinHeap heap;
+		private int stamp;
+
+		SideLabels(int n) {
+			distances = new int[n];
+			previousTowns = new int[n];
+			previousEdges = new int[n];
+			stamps = new int[n];
+			heap = new IndexedMinHeap(n);
+		}
+
+		/**
+		 * Forget the labels of the last query
+		 */
+		void start() {
+			heap.clear();
+			if (++stamp == 0) {
+				Arrays.fill(stamps, 0); // The stamp wrapped around, forget every old label
+				stamp = 1;
+			}
+		}
+
+		boolean isLabelled(int town) {
+			return stamps[town] == stamp;
+		}
+
+		int previousTown(int town) {
+			return previousTowns[town];
+		}
+
+		void push(int town, int distance, int previous, int edge) {
+			if (isLabelled(town) && distances[town] <= distance) {
+				return;
+			}
+			stamps[town] = stamp;
+			distances[town] = distance;
+			previousTowns[town] = previous;
+			previousEdges[town] = edge;
+			heap.insertOrDecrease(town, distance);
+		}
+	}
+
+	/**
+	 * Both sides of a query, reused by every query on the same thread
+	 */
+	private static class QueryWorkspace {
+		private final SideLabels forward;
+		private final SideLabels backward;
+		private int best;
+		private int meeting;
+
+		QueryWorkspace(int n) {
+			forward = new SideLabels(n);
+			backward = new SideLabels(n);
+		}
+
+		void start() {
+			forward.start();
+			backward.start();
+			best = CompactGraph.UNREACHABLE;
+			meeting = -1;
+		}
+	}
+
+	/**
+	 * The preprocessing step: orders the towns by importance and contracts them, adding shortcuts
+	 */
+	private static class Contraction {
+		private final CompactGraph graph;
+		private final int n;
+		private int[] from, to, weight, arc, first, second; // edge id -> fields, grown as needed
+		private int edgeCount;
+		private int shortcutCount; // edges added or replaced by a shortcut
+		private final int[][] incident; // town id -> ids of edges to towns not yet contracted
+		private final int[] incidentSize;
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+		private final int[] ranks;
+		// Witness search labels, reset with a stamp
+		private final int[] witnessDistances;
+		private final int[] witnessStamps;
+		private final int[] targetStamps; // town id -> stamp of the witness search looking for it
+		private int witnessStamp;
+		private final IndexedMinHeap witnessHeap;
+
+		Contraction(CompactGraph graph) {
+			this.graph = graph;
+			n = graph.townCount();
+			int capacity = Math.max(16, graph.roadCount() * 2);
+			from = new int[capacity];
+			to = new int[capacity];
+			weight = new int[capacity];
+			arc = new int[capacity];
+			first = new int[capacity];
+			second = new int[capacity];
+			incident = new int[n][];
+			incidentSize = new int[n];
+			contracted = new boolean[n];
+			contractedNeighbours = new int[n];
+			ranks = new int[n];
+			witnessDistances = new int[n];
+			witnessStamps = new int[n];
+			targetStamps = new int[n];
+			witnessHeap = new IndexedMinHeap(n);
+			for (int v = 0; v < n; v++) {
+				incident[v] = new int[Math.max(2, graph.endArc(v) - graph.firstArc(v))];
+			}
+			for (int v = 0; v < n; v++) {
+				for (int a = graph.firstArc(v); a < graph.endArc(v); a++) {
+					int t = graph.target(a);
+					if (v < t) { // each road has an arc both ways, keep one
+						addEdge(v, t, graph.weight(a), a, -1, -1);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Contract every town, least important first, with lazy priority updates
+		 */
+		void run() {
+			IndexedMinHeap queue = new IndexedMinHeap(n);
+			for (int v = 0; v < n; v++) {
+				queue.insertOrDecrease(v, priority(v));
+			}
+			int rank = 0;
+			while (queue.isEmpty() == false) {
+				int v = queue.poll();
+				int current = priority(v);
+				if (queue.isEmpty() == false && current > queue.peekKey()) {
+					queue.insertOrDecrease(v, current); // Lazy update, it is no longer the least important
+					continue;
+				}
+				contract(v, false);
+				contracted[v] = true;
+				ranks[v] = rank++;
+				for (int i = 0; i < incidentSize[v]; i++) {
+					int u = other(incident[v][i], v);
+					removeIncident(u, v);
+					contractedNeighbours[u]++;
+					if (queue.contains(u)) {
+						queue.update(u, priority(u));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Return the importance of a town: twice the shortcuts it would add minus the roads it would
+		 * remove, plus how many of its neighbours are already contracted so the order stays even
+		 * @param v the town id
+		 */
+		private int priority(int v) {
+			return 2 * (contract(v, true) - incidentSize[v]) + contractedNeighbours[v];
+		}
+
+		/**
+		 * Add the shortcuts needed to remove town v from the remaining graph
+		 * @param v the town id
+		 * @param simulate true to only count the shortcuts
+		 * @return the number of shortcuts needed
+		 */
+		private int contract(int v, boolean simulate) {
+			int shortcuts = 0;
+			int size = incidentSize[v];
+			int[] edges = Arrays.copyOf(incident[v], size);
+			for (int i = 0; i < size; i++) {
+				int ue = edges[i];
+				int u = other(ue, v);
+				if (i == size - 1) {
+					continue; // No later edge to pair it with
+				}
+				int limit = 0;
+				for (int j = i + 1; j < size; j++) {
+					limit = Math.max(limit, weight[ue] + weight[edges[j]]);
+				}
+				witnessStamp++;
+				for (int j = i + 1; j < size; j++) {
+					targetStamps[other(edges[j], v)] = witnessStamp;
+				}
+				witnessSearch(u, v, limit, size - i - 1, simulate? SIMULATION_SETTLE_LIMIT: WITNESS_SETTLE_LIMIT);
+				for (int j = i + 1; j < size; j++) {
+					int we = edges[j];
+					int w = other(we, v);
+					int through = weight[ue] + weight[we];
+					if (witnessDistances[w] <= through && witnessStamps[w] == witnessStamp) {
+						continue; // A path avoiding v is no longer, no shortcut needed
+					}
+					shortcuts++;
+					if (simulate == false) {
+						addShortcut(u, w, through, ue, we);
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Dijkstra from u over the towns not yet contracted, never passing through v, up to the limit.
+		 * The caller bumps the stamp and marks the towns to look for in targetStamps
+		 * @param u the town id to start from
+		 * @param v the town id being contracted
+		 * @param limit the distance after which the search stops
+		 * @param targets the number of marked towns, the search stops once all are settled
+		 * @param settleLimit the number of towns after which the search stops
+		 */
+		private void witnessSearch(int u, int v, int limit, int targets, int settleLimit) {
+			witnessHeap.clear();
+			witnessDistances[u] = 0;
+			witnessStamps[u] = witnessStamp;
+			witnessHeap.insertOrDecrease(u, 0);
+			int settled = 0;
+			while (witnessHeap.isEmpty() == false && settled++ < settleLimit) {
+				if (witnessHeap.peekKey() > limit) {
+					break;
+				}
+				int x = witnessHeap.poll();
+				if (targetStamps[x] == witnessStamp && --targets == 0) {
+					break;
+				}
+				int distance = witnessDistances[x];
+				for (int i = 0; i < incidentSize[x]; i++) {
+					int e = incident[x][i];
+					int y = other(e, x);
+					if (y == v) {
+						continue;
+					}
+					int d = distance + weight[e];
+					if (witnessStamps[y] != witnessStamp || d < witnessDistances[y]) {
+						witnessStamps[y] = witnessStamp;
+						witnessDistances[y] = d;
+						witnessHeap.insertOrDecrease(y, d);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Add a shortcut u-w, or lower an existing edge u-w to the shortcut's distance
+		 */
+		private void addShortcut(int u, int w, int distance, int firstEdge, int secondEdge) {
+			for (int i = 0; i < incidentSize[u]; i++) {
+				int e = incident[u][i];
+				if (other(e, u) == w) {
+					if (weight[e] > distance) {
+						if (arc[e] != -1) {
+							shortcutCount++; // A road replaced by a shortcut
+						}
+						weight[e] = distance;
+						arc[e] = -1;
+						first[e] = firstEdge;
+						second[e] = secondEdge;
+					}
+					return;
+				}
+			}
+			addEdge(u, w, distance, -1, firstEdge, secondEdge);
+			shortcutCount++;
+		}
+
+		/**
+		 * Add an edge between two towns not yet contracted
+		 */
+		private void addEdge(int u, int w, int distance, int snapshotArc, int firstEdge, int secondEdge) {
+			if (edgeCount == from.length) {
+				int capacity = from.length * 2;
+				from = Arrays.copyOf(from, capacity);
+				to = Arrays.copyOf(to, capacity);
+				weight = Arrays.copyOf(weight, capacity);
+				arc = Arrays.copyOf(arc, capacity);
+				first = Arrays.copyOf(first, capacity);
+				second = Arrays.copyOf(second, capacity);
+			}
+			int e = edgeCount++;
+			from[e] = u;
+			to[e] = w;
+			weight[e] = distance;
+			arc[e] = snapshotArc;
+			first[e] = firstEdge;
+			second[e] = secondEdge;
+			addIncident(u, e);
+			addIncident(w, e);
+		}
+
+		private void addIncident(int v, int e) {
+			if (incidentSize[v] == incident[v].length) {
+				incident[v] = Arrays.copyOf(incident[v], incident[v].length * 2);
+			}
+			incident[v][incidentSize[v]++] = e;
+		}
+
+		private void removeIncident(int u, int v) {
+			for (int i = 0; i < incidentSize[u]; i++) {
+				if (other(incident[u][i], u) == v) {
+					incident[u][i] = incident[u][--incidentSize[u]];
+					return;
+				}
+			}
+		}
+
+		private int other(int e, int v) {
+			return from[e] == v? to[e]: from[e];
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ContractionHierarchy_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSameAsDijkstra() {
+		ContractionHierarchy hierarchy = graph.contractionHierarchy();
+		CompactGraph compact = hierarchy.getGraph();
+		for (int i = 1; i < 13; i++) {
+			for (int j = 1; j < 13; j++) {
+				assertEquals(compact.distance(compact.idOf("Town_" + i), compact.idOf("Town_" + j)),
+						hierarchy.distance(compact.idOf("Town_" + i), compact.idOf("Town_" + j)));
+				if (i != j) {
+					assertEquals(graph.shortestPath(town[i], town[j]), 
+							graph.shortestPath(town[i], town[j], SearchMode.CONTRACTION_HIERARCHY));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShortcutsAreUnpacked() {
+		ArrayList<String> path = graph.shortestPath(town[6], town[1], SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals(5, path.size());
+		assertEquals("Town_6 via Road_7 to Town_9 3 mi", path.get(0));
+		assertEquals("Town_3 via Road_2 to Town_1 4 mi", path.get(4));
+		assertTrue(graph.shortestPath(town[1], town[12], SearchMode.CONTRACTION_HIERARCHY).isEmpty());
+	}
+
+	@Test
+	public void testRebuiltAfterChange() {
+		ContractionHierarchy hierarchy = graph.contractionHierarchy();
+		assertSame(hierarchy, graph.contractionHierarchy());
+		assertTrue(hierarchy.getShortcutCount() >= 0);
+		assertTrue(hierarchy.getPreprocessingTime() >= 0);
+		graph.addEdge(town[1], town[11], 1, "Road_13");
+		assertNotSame(hierarchy, graph.contractionHierarchy());
+		assertEquals(1, graph.shortestPath(town[1], town[11], SearchMode.CONTRACTION_HIERARCHY).size());
+	}
+
+	@Test
+	public void testZeroMileRoads() {
+		Graph chain = new Graph();
+		Town[] stop = new Town[4];
+		for (int i = 0; i < 4; i++) {
+			stop[i] = new Town("Stop_" + i);
+			chain.addVertex(stop[i]);
+		}
+		for (int i = 0; i < 3; i++) {
+			chain.addEdge(stop[i], stop[i + 1], 0, "Lane_" + i);
+		}
+		assertEquals(3, chain.shortestPath(stop[0], stop[3], SearchMode.CONTRACTION_HIERARCHY).size());
+		assertEquals(chain.shortestPath(stop[0], stop[3], SearchMode.DIJKSTRA),
+				chain.shortestPath(stop[0], stop[3], SearchMode.CONTRACTION_HIERARCHY));
+
+		graph.addEdge(town[2], town[3], 0, "Road_13");
+		graph.addEdge(town[7], town[4], 0, "Road_14");
+		graph.addEdge(town[9], town[11], 0, "Road_15");
+		ContractionHierarchy hierarchy = graph.contractionHierarchy();
+		CompactGraph compact = hierarchy.getGraph();
+		for (int i = 1; i < 13; i++) {
+			for (int j = 1; j < 13; j++) {
+				int source = compact.idOf("Town_" + i);
+				int destination = compact.idOf("Town_" + j);
+				assertEquals(compact.distance(source, destination), hierarchy.distance(source, destination));
+				assertEquals(graph.shortestRoute(town[i], town[j], SearchMode.DIJKSTRA).getDistance(),
+						graph.shortestRoute(town[i], town[j], SearchMode.CONTRACTION_HIERARCHY).getDistance());
+			}
+		}
+	}
+}
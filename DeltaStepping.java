@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel single-source shortest paths by delta-stepping (Meyer and Sanders). Towns are kept in
+ * buckets of width delta by tentative distance. The lowest bucket is emptied in phases that relax
+ * its light roads (no longer than delta) in parallel, since those can refill the same bucket; its
+ * heavy roads are relaxed once, in parallel, when it is empty. Each town's label packs its distance
+ * and the arc that gave it into one long, lowered by compare-and-set, so a distance and its parent
+ * always change together. The distances are the same as Dijkstra's whatever the thread count;
+ * among paths of equal length the one kept may differ. Roads must not have negative distances.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class DeltaStepping {
+
+	/** Label of a town that has not been reached */
+	private static final long UNREACHED = Long.MAX_VALUE;
+
+	// Variables
+	private final CompactGraph graph;
+	private final int delta;
+
+	/**
+	 * Constructor with the default bucket width
+	 * @param graph the snapshot to search
+	 */
+	public DeltaStepping(CompactGraph graph) {
+		this(graph, defaultDelta(graph));
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the snapshot to search
+	 * @param delta the bucket width, at least 1
+	 * @throws IllegalArgumentException if delta is less than 1
+	 */
+	public DeltaStepping(CompactGraph graph, int delta) {
+		if (delta < 1) {
+			throw new IllegalArgumentException("delta must be at least 1: " + delta);
+		}
+		this.graph = graph;
+		this.delta = delta;
+	}
+
+	/**
+	 * Return the usual bucket width, the largest road distance over the average number of roads
+	 * per town: wide enough for buckets to hold many towns, narrow enough that few are relaxed twice
+	 * @param graph the snapshot to search
+	 */
+	public static int defaultDelta(CompactGraph graph) {
+		int maxWeight = 1;
+		int arcs = graph.firstArc(graph.townCount());
+		for (int arc = 0; arc < arcs; arc++) {
+			maxWeight = Math.max(maxWeight, graph.weight(arc));
+		}
+		double degree = Math.max(1.0, (double) arcs / Math.max(1, graph.townCount()));
+		return Math.max(1, (int) (maxWeight / degree));
+	}
+
+	/**
+	 * Return the bucket width
+	 */
+	public int getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Return the shortest path tree of a town, computed on the common fork-join pool
+	 * @param source id of the town the paths start from
+	 */
+	public ShortestPathTree tree(int source) {
+		return tree(source, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Return the shortest path tree of a town, computed on the given pool
+	 * @param source id of the town the paths start from
+	 * @param pool the threads to use
+	 */
+	public ShortestPathTree tree(int source, ForkJoinPool pool) {
+		int n = graph.townCount();
+		AtomicLongArray labels;
+		try {
+			// Parallel streams started from a task of the pool run on that pool
+			labels = pool.submit(() -> search(source)).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Search interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Search failed", e.getCause());
+		}
+		int[] distances = new int[n];
+		int[] parentArcs = new int[n];
+		for (int v = 0; v < n; v++) {
+			long label = labels.get(v);
+			distances[v] = label == UNREACHED? CompactGraph.UNREACHABLE: (int) (label >>> 32);
+			parentArcs[v] = label == UNREACHED? -1: (int) label;
+		}
+		return new ShortestPathTree(graph, source, distances, parentArcs);
+	}
+
+	/**
+	 * Run the buckets from the source
+	 * @param source id of the town the paths start from
+	 * @return labels town id -> distance in the high 32 bits, arc from the parent in the low 32 bits
+	 */
+	private AtomicLongArray search(int source) {
+		int n = graph.townCount();
+		AtomicLongArray labels = new AtomicLongArray(n);
+		for (int v = 0; v < n; v++) {
+			labels.set(v, UNREACHED);
+		}
+		labels.set(source, 0xFFFFFFFFL); // distance 0, no arc
+		TreeMap<Integer, IntList> buckets = new TreeMap<>();
+		buckets.computeIfAbsent(0, b -> new IntList()).add(source);
+		int[] frontierStamps = new int[n]; // town id -> last phase the town was in the frontier
+		int[] settledStamps = new int[n]; // town id -> last bucket the town was settled in, plus 1
+		Arrays.fill(frontierStamps, -1);
+		int phase = 0;
+
+		while (buckets.isEmpty() == false) {
+			int bucket = buckets.firstKey();
+			IntList settled = new IntList();
+			// Light roads can put towns back in this bucket, so it is emptied in phases
+			while (buckets.containsKey(bucket)) {
+				IntList entries = buckets.remove(bucket);
+				IntList frontier = new IntList();
+				phase++;
+				for (int i = 0; i < entries.size; i++) {
+					int v = entries.items[i];
+					// Skip entries left behind by a better label, and repeats
+					if (distance(labels.get(v)) / delta == bucket && frontierStamps[v] != phase) {
+						frontierStamps[v] = phase;
+						frontier.add(v);
+						if (settledStamps[v] != bucket + 1) {
+							settledStamps[v] = bucket + 1;
+							settled.add(v);
+						}
+					}
+				}
+				relax(frontier, true, labels, buckets);
+			}
+			relax(settled, false, labels, buckets);
+		}
+		return labels;
+	}
+
+	/**
+	 * Relax the light or heavy roads of the given towns in parallel, then queue the towns whose
+	 * label was lowered in the bucket of their new distance
+	 * @param towns the towns whose roads are relaxed
+	 * @param light true for the roads no longer than delta, false for the others
+	 * @param labels the labels of every town
+	 * @param buckets bucket index -> towns queued in the bucket
+	 */
+	private void relax(IntList towns, boolean light, AtomicLongArray labels, TreeMap<Integer, IntList> buckets) {
+		int[] improved = IntStream.range(0, towns.size).parallel().flatMap(i -> {
+			int v = towns.items[i];
+			int distance = distance(labels.get(v));
+			IntList lowered = null;
+			for (int arc = graph.firstArc(v); arc < graph.endArc(v); arc++) {
+				int weight = graph.weight(arc);
+				if ((weight <= delta) != light) {
+					continue;
+				}
+				int t = graph.target(arc);
+				long label = ((long) (distance + weight) << 32) | arc;
+				if (lower(labels, t, label)) {
+					if (lowered == null) {
+						lowered = new IntList();
+					}
+					lowered.add(t);
+				}
+			}
+			return lowered == null? IntStream.empty(): IntStream.of(lowered.items).limit(lowered.size);
+		}).toArray();
+		for (int t: improved) {
+			buckets.computeIfAbsent(distance(labels.get(t)) / delta, b -> new IntList()).add(t);
+		}
+	}
+
+	/**
+	 * Replace the label of a town if the given label has a smaller distance. A label of the same
+	 * distance is never taken, or two towns joined by a road of length 0 could become each other's
+	 * parent
+	 * @param labels the labels of every town
+	 * @param town the town id
+	 * @param label the new label
+	 * @return true if the label was lowered
+	 */
+	private static boolean lower(AtomicLongArray labels, int town, long label) {
+		long current = labels.get(town);
+		while (distance(label) < distance(current)) {
+			if (labels.compareAndSet(town, current, label)) {
+				return true;
+			}
+			current = labels.get(town);
+		}
+		return false;
+	}
+
+	/**
+	 * Return the distance held in a label
+	 * @param label the label of a reached town
+	 */
+	private static int distance(long label) {
+		return (int) (label >>> 32);
+	}
+
+	/**
+	 * A growable list of town ids
+	 */
+	private static class IntList {
+		private int[] items = new int[8];
+		private int size;
+
+		void add(int item) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = item;
+		}
+	}
+
+}
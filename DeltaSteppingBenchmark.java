@@ -0,0 +1,96 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times DeltaStepping against the sequential Dijkstra of CompactGraph on a random grid of towns,
+ * for 1, 2, 4, ... threads up to the number of cores, and checks that every run gives the same
+ * distances. Usage: java DeltaSteppingBenchmark [side] [delta]
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class DeltaSteppingBenchmark {
+
+	/** Searches timed per thread count, after one warm-up search */
+	private static final int RUNS = 3;
+
+	/**
+	 * Run the benchmark
+	 * @param args the side of the square grid (default 1000) and the bucket width (default chosen
+	 * from the graph)
+	 */
+	public static void main(String[] args) {
+		int side = args.length > 0? Integer.parseInt(args[0]): 1000;
+		CompactGraph graph = grid(side, new Random(42));
+		DeltaStepping engine = args.length > 1? new DeltaStepping(graph, Integer.parseInt(args[1])) 
+				: new DeltaStepping(graph);
+		int n = graph.townCount();
+		System.out.println(n + " towns, " + graph.roadCount() + " roads, delta " + engine.getDelta());
+
+		int[] expected = new int[n];
+		graph.search(0, -1, expected, new int[n]);
+		long start = System.nanoTime();
+		for (int run = 0; run < RUNS; run++) {
+			graph.search(0, -1, new int[n], new int[n]);
+		}
+		double dijkstra = (System.nanoTime() - start) / 1e6 / RUNS;
+		System.out.printf("dijkstra        %10.1f ms%n", dijkstra);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			check(engine.tree(0, pool), expected);
+			start = System.nanoTime();
+			for (int run = 0; run < RUNS; run++) {
+				engine.tree(0, pool);
+			}
+			double time = (System.nanoTime() - start) / 1e6 / RUNS;
+			System.out.printf("%2d threads      %10.1f ms  speedup %.2f%n", threads, time, dijkstra / time);
+			pool.shutdown();
+			if (threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Stop with an error if the tree does not have the expected distances
+	 * @param tree the tree to check
+	 * @param expected town id -> distance found by Dijkstra
+	 */
+	private static void check(ShortestPathTree tree, int[] expected) {
+		for (int v = 0; v < expected.length; v++) {
+			if (tree.distance(v) != expected[v]) {
+				throw new IllegalStateException("Distance to town " + v + " is " + tree.distance(v) 
+						+ ", Dijkstra found " + expected[v]);
+			}
+		}
+	}
+
+	/**
+	 * Return a square grid of towns joined to their right and lower neighbours, 1 to 100 miles apart
+	 * @param side the number of towns along each side
+	 * @param random the source of the distances
+	 */
+	private static CompactGraph grid(int side, Random random) {
+		Graph graph = new Graph();
+		Town[] towns = new Town[side * side];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town_" + i);
+			graph.addVertex(towns[i]);
+		}
+		for (int row = 0; row < side; row++) {
+			for (int column = 0; column < side; column++) {
+				int v = row * side + column;
+				if (column + 1 < side) {
+					graph.addEdge(towns[v], towns[v + 1], 1 + random.nextInt(100), "Road_" + v + "_E");
+				}
+				if (row + 1 < side) {
+					graph.addEdge(towns[v], towns[v + side], 1 + random.nextInt(100), "Road_" + v + "_S");
+				}
+			}
+		}
+		return graph.snapshot();
+	}
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class DeltaStepping_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSameAsDijkstra() {
+		for (int i = 1; i < 13; i++) {
+			ShortestPathTree expected = graph.shortestPathTree(town[i]);
+			ShortestPathTree tree = graph.parallelShortestPathTree(town[i]);
+			for (int j = 1; j < 13; j++) {
+				assertEquals(expected.distance("Town_" + j), tree.distance("Town_" + j));
+				assertEquals(graph.shortestPath(town[i], town[j]).size(), tree.shortestPath("Town_" + j).size());
+			}
+		}
+	}
+
+	@Test
+	public void testDeltaAndThreads() {
+		Graph big = new Graph();
+		Town[] towns = new Town[500];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("T" + i);
+			big.addVertex(towns[i]);
+		}
+		Random random = new Random(7);
+		for (int i = 0; i < 1500; i++) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a != b) {
+				big.addEdge(towns[a], towns[b], random.nextInt(50), "R" + i);
+			}
+		}
+		CompactGraph compact = big.snapshot();
+		int n = compact.townCount();
+		int[] expected = new int[n];
+		compact.search(3, -1, expected, new int[n]);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		for (int delta: new int[] {1, 5, DeltaStepping.defaultDelta(compact), 100}) {
+			DeltaStepping engine = new DeltaStepping(compact, delta);
+			ShortestPathTree tree = engine.tree(3, pool);
+			for (int v = 0; v < n; v++) {
+				assertEquals(expected[v], tree.distance(v));
+				Route route = tree.shortestRoute(compact.townName(v));
+				if (v != 3 && expected[v] != CompactGraph.UNREACHABLE) {
+					assertEquals(expected[v], route.getDistance());
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void testBadDelta() {
+		try {
+			new DeltaStepping(graph.snapshot(), 0);
+			fail("No exception for a bucket width of 0");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,236 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The shortest distance between every pair of towns of a snapshot, stored as one row per town id.
+ * Small dense graphs are solved with a blocked Floyd-Warshall, whose blocks fit in the cache, and
+ * larger sparse graphs with one Dijkstra per source town. Both run in parallel on all cores.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class DistanceMatrix {
+
+	/**
+	 * The algorithm used to fill the matrix
+	 */
+	public enum Method {
+		/** Blocked Floyd-Warshall, O(n^3) whatever the number of roads */
+		FLOYD_WARSHALL,
+		/** One Dijkstra per source town, O(n (n + m) log n) */
+		DIJKSTRA
+	}
+
+	/** Largest number of towns Floyd-Warshall is considered for */
+	public static final int FLOYD_WARSHALL_LIMIT = 2048;
+
+	/** Side of the square blocks of the blocked Floyd-Warshall */
+	private static final int BLOCK = 64;
+
+	/** Stands for no path during Floyd-Warshall; two of them add up without overflowing */
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	// Variables
+	private final CompactGraph graph;
+	private final int[][] distances; // source id -> destination id -> distance
+	private final Method method;
+	private final long computeTime;
+	private final long peakMemory;
+
+	/**
+	 * Constructor, picks the algorithm from the size and density of the graph
+	 * @param graph the snapshot to measure
+	 */
+	public DistanceMatrix(CompactGraph graph) {
+		this(graph, choose(graph));
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the snapshot to measure
+	 * @param method the algorithm to use
+	 */
+	public DistanceMatrix(CompactGraph graph, Method method) {
+		long start = System.nanoTime();
+		this.graph = graph;
+		this.method = method;
+		int n = graph.townCount();
+		distances = new int[n][n];
+		long matrixBytes = (long) n * (4L * n + 16);
+		int threads = Math.min(Math.max(n, 1), Runtime.getRuntime().availableProcessors());
+		if (method == Method.FLOYD_WARSHALL) {
+			floydWarshall();
+			peakMemory = matrixBytes;
+		}
+		else {
+			dijkstra();
+			// previous arcs, and the heap's three arrays, for each thread
+			peakMemory = matrixBytes + threads * 16L * n;
+		}
+		computeTime = (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * Return the algorithm that should be faster for the graph: Floyd-Warshall when its n^3 inner
+	 * steps, each about three times the cost of a heap step, cost no more than n Dijkstra searches
+	 * @param graph the snapshot to measure
+	 */
+	public static Method choose(CompactGraph graph) {
+		long n = graph.townCount();
+		if (n > FLOYD_WARSHALL_LIMIT) {
+			return Method.DIJKSTRA;
+		}
+		long log = 64 - Long.numberOfLeadingZeros(Math.max(n, 2));
+		long dijkstra = n * (n + 2L * graph.roadCount()) * log;
+		return 3 * n * n * n <= dijkstra? Method.FLOYD_WARSHALL: Method.DIJKSTRA;
+	}
+
+	/**
+	 * Return the snapshot the matrix was computed for
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the algorithm used to fill the matrix
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Return the time taken to fill the matrix
+	 * @return computeTime the time in milliseconds
+	 */
+	public long getComputeTime() {
+		return computeTime;
+	}
+
+	/**
+	 * Return the most memory the computation held at once: the matrix and the working arrays of
+	 * every thread
+	 * @return peakMemory the memory in bytes
+	 */
+	public long getPeakMemory() {
+		return peakMemory;
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param source id of the town where the path starts
+	 * @param destination id of the town where the path ends
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(int source, int destination) {
+		return distances[source][destination];
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param sourceVertex name of the town where the path starts
+	 * @param destinationVertex name of the town where the path ends
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 * @throws IllegalArgumentException if either town is not in the graph
+	 */
+	public int distance(String sourceVertex, String destinationVertex) {
+		int source = graph.idOf(sourceVertex);
+		int destination = graph.idOf(destinationVertex);
+		if (source == -1 || destination == -1) {
+			throw new IllegalArgumentException("Town not in the graph");
+		}
+		return distances[source][destination];
+	}
+
+	/**
+	 * Return the distances, indexed by the town ids of the snapshot. This is the matrix itself,
+	 * not a copy, and must not be changed
+	 * @return distances source id -> destination id -> distance
+	 */
+	public int[][] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * Fill each row with a full Dijkstra from its town, one queue per thread
+	 */
+	private void dijkstra() {
+		int n = graph.townCount();
+		ThreadLocal<IntPriorityQueue> queues = ThreadLocal.withInitial(graph::newQueue);
+		ThreadLocal<int[]> previousArcs = ThreadLocal.withInitial(() -> new int[n]);
+		IntStream.range(0, n).parallel()
+				.forEach(source -> graph.search(source, -1, distances[source], previousArcs.get(), queues.get()));
+	}
+
+	/**
+	 * Blocked Floyd-Warshall. For each diagonal block k, the block itself is solved first, then the
+	 * blocks sharing its rows or columns, then all the others; the blocks of each of the last two
+	 * steps only read what the step before wrote, so they run in parallel
+	 */
+	private void floydWarshall() {
+		int n = graph.townCount();
+		for (int[] row: distances) {
+			Arrays.fill(row, INFINITY);
+		}
+		for (int v = 0; v < n; v++) {
+			distances[v][v] = 0;
+			for (int arc = graph.firstArc(v); arc < graph.endArc(v); arc++) {
+				int t = graph.target(arc);
+				distances[v][t] = Math.min(distances[v][t], graph.weight(arc));
+			}
+		}
+
+		int blocks = (n + BLOCK - 1) / BLOCK;
+		for (int k = 0; k < blocks; k++) {
+			final int kb = k;
+			relaxBlock(kb, kb, kb);
+			IntStream.range(0, blocks).parallel().filter(b -> b != kb).forEach(b -> {
+				relaxBlock(kb, b, kb);
+				relaxBlock(b, kb, kb);
+			});
+			IntStream.range(0, blocks * blocks).parallel().forEach(ij -> {
+				int i = ij / blocks;
+				int j = ij % blocks;
+				if (i != kb && j != kb) {
+					relaxBlock(i, j, kb);
+				}
+			});
+		}
+		for (int[] row: distances) {
+			for (int c = 0; c < n; c++) {
+				if (row[c] >= INFINITY) {
+					row[c] = CompactGraph.UNREACHABLE;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Relax block (i, j) through the towns of block k
+	 * @param i the row block
+	 * @param j the column block
+	 * @param k the block of towns to go through
+	 */
+	private void relaxBlock(int i, int j, int k) {
+		int n = distances.length;
+		int rowEnd = Math.min(n, (i + 1) * BLOCK);
+		int columnStart = j * BLOCK;
+		int columnEnd = Math.min(n, columnStart + BLOCK);
+		int middleEnd = Math.min(n, (k + 1) * BLOCK);
+		for (int m = k * BLOCK; m < middleEnd; m++) {
+			int[] through = distances[m];
+			for (int r = i * BLOCK; r < rowEnd; r++) {
+				int[] row = distances[r];
+				int toMiddle = row[m];
+				if (toMiddle == INFINITY) {
+					continue;
+				}
+				// No branch on the distances, so the loop can be vectorized
+				for (int c = columnStart; c < columnEnd; c++) {
+					row[c] = Math.min(row[c], toMiddle + through[c]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class DistanceMatrix_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testDistances() {
+		CompactGraph compact = graph.snapshot();
+		for (DistanceMatrix.Method method: DistanceMatrix.Method.values()) {
+			DistanceMatrix matrix = new DistanceMatrix(compact, method);
+			assertEquals(method, matrix.getMethod());
+			for (int i = 0; i < compact.townCount(); i++) {
+				for (int j = 0; j < compact.townCount(); j++) {
+					assertEquals(compact.distance(i, j), matrix.distance(i, j));
+				}
+			}
+			assertEquals(8, matrix.distance("Town_1", "Town_11"));
+			assertEquals(CompactGraph.UNREACHABLE, matrix.distance("Town_1", "Town_12"));
+			assertTrue(matrix.getPeakMemory() >= 12 * 12 * 4);
+		}
+	}
+
+	@Test
+	public void testUnknownTown() {
+		try {
+			graph.distanceMatrix().distance("Town_1", "Town_13");
+			fail("No exception for a town not in the graph");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(true);
+		}
+	}
+
+	@Test
+	public void testBlocksAgree() {
+		// More towns than one block, with a few parts that do not connect
+		Graph big = new Graph();
+		Town[] towns = new Town[300];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("T" + i);
+			big.addVertex(towns[i]);
+		}
+		Random random = new Random(11);
+		for (int i = 0; i < 900; i++) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a != b && a % 50 < 45 && b % 50 < 45) {
+				big.addEdge(towns[a], towns[b], 1 + random.nextInt(20), "R" + i);
+			}
+		}
+		CompactGraph compact = big.snapshot();
+		int[][] floyd = new DistanceMatrix(compact, DistanceMatrix.Method.FLOYD_WARSHALL).getDistances();
+		int[][] dijkstra = new DistanceMatrix(compact, DistanceMatrix.Method.DIJKSTRA).getDistances();
+		for (int i = 0; i < towns.length; i++) {
+			assertArrayEquals(dijkstra[i], floyd[i]);
+		}
+	}
+
+	@Test
+	public void testChoose() {
+		Graph complete = new Graph();
+		Town[] towns = new Town[40];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("C" + i);
+			complete.addVertex(towns[i]);
+			for (int j = 0; j < i; j++) {
+				complete.addEdge(towns[j], towns[i], i + j, "C" + j + "-" + i);
+			}
+		}
+		assertEquals(DistanceMatrix.Method.FLOYD_WARSHALL, DistanceMatrix.choose(complete.snapshot()));
+		Graph path = new Graph();
+		Town previous = new Town("P0");
+		path.addVertex(previous);
+		for (int i = 1; i <= DistanceMatrix.FLOYD_WARSHALL_LIMIT; i++) {
+			Town t = new Town("P" + i);
+			path.addVertex(t);
+			path.addEdge(previous, t, 1, "R" + i);
+			previous = t;
+		}
+		assertEquals(DistanceMatrix.Method.DIJKSTRA, DistanceMatrix.choose(path.snapshot()));
+	}
+}
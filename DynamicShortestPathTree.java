@@ -0,0 +1,253 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Shortest paths from one town that the graph keeps up to date as roads change, in the manner of
+ * Ramalingam and Reps. A road that gets shorter (or is added) can only improve the towns beyond
+ * it, so a Dijkstra is started from the end it improves and stops where nothing gets better. A tree
+ * road that gets longer (or is removed) can only hurt the subtree hanging from it: those towns are
+ * relabelled from their neighbours outside the subtree and a Dijkstra confined to the subtree
+ * settles them again. Roads outside the tree that get longer change nothing.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class DynamicShortestPathTree {
+
+	// Variables
+	private final Graph graph;
+	private final Town source;
+	private final Map<Town, Integer> distances = new HashMap<>(); // only the reachable towns
+	private final Map<Town, Town> parents = new HashMap<>(); // town -> previous town on its path
+	private int lastRepairSize; // towns whose label changed in the last update
+
+	/**
+	 * Constructor, runs a full Dijkstra from the source. Use Graph.trackShortestPaths so the
+	 * graph keeps the tree up to date
+	 * @param graph the graph to search
+	 * @param source the town the paths start from
+	 */
+	DynamicShortestPathTree(Graph graph, Town source) {
+		this.graph = graph;
+		this.source = source;
+		rebuild();
+	}
+
+	/**
+	 * Return the town the paths start from
+	 */
+	public Town getSource() {
+		return source;
+	}
+
+	/**
+	 * Return the shortest distance from the source to a town
+	 * @param town the town
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public synchronized int distance(Town town) {
+		Integer distance = distances.get(town);
+		return distance == null? CompactGraph.UNREACHABLE: distance;
+	}
+
+	/**
+	 * Find the shortest route from the source to a town
+	 * @param town the town where the route ends
+	 * @return the route, Route.NONE if the town cannot be reached
+	 */
+	public synchronized Route shortestRoute(Town town) {
+		if (parents.containsKey(town) == false) {
+			return Route.NONE;
+		}
+		ArrayList<Town> towns = new ArrayList<>();
+		for (Town t = town; t != null; t = parents.get(t)) {
+			towns.add(t);
+		}
+		Collections.reverse(towns);
+		return graph.route(towns);
+	}
+
+	/**
+	 * Find the shortest path from the source to a town, in the same form as Graph.shortestPath
+	 * @param town the town where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if the town cannot be reached
+	 */
+	public ArrayList<String> shortestPath(Town town) {
+		return shortestRoute(town).toPaths();
+	}
+
+	/**
+	 * Return the number of towns whose distance or path changed in the last update, the work a
+	 * full recomputation would have spent on the whole graph
+	 */
+	public synchronized int getLastRepairSize() {
+		return lastRepairSize;
+	}
+
+	/**
+	 * Label every town again from scratch
+	 */
+	synchronized void rebuild() {
+		distances.clear();
+		parents.clear();
+		lastRepairSize = 0;
+		if (graph.containsVertex(source) == false) {
+			return;
+		}
+		distances.put(source, 0);
+		PriorityQueue<Label> queue = new PriorityQueue<>();
+		queue.add(new Label(source, 0));
+		propagate(queue, null);
+	}
+
+	/**
+	 * Repair the tree after the road between two towns was added, removed or changed distance
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 */
+	synchronized void roadChanged(Town town1, Town town2) {
+		lastRepairSize = 0;
+		Road road = graph.containsEdge(town1, town2)? graph.getEdge(town1, town2): null;
+		// The road is in the tree if one end is the parent of the other
+		Town child = town1.equals(parents.get(town2))? town2: town2.equals(parents.get(town1))? town1: null;
+		if (child != null) {
+			Town parent = parents.get(child);
+			long through = road == null? Long.MAX_VALUE: (long) distances.get(parent) + road.getWeight();
+			if (through > distances.get(child)) {
+				repairSubtree(child);
+				return;
+			}
+		}
+		if (road != null) {
+			improveThrough(town1, town2, road.getWeight());
+			improveThrough(town2, town1, road.getWeight());
+		}
+	}
+
+	/**
+	 * If the road makes the path to a town shorter, pass the improvement on
+	 * @param from the end of the road the path comes from
+	 * @param to the end of the road that may improve
+	 * @param weight distance of the road
+	 */
+	private void improveThrough(Town from, Town to, int weight) {
+		Integer d = distances.get(from);
+		if (d == null) {
+			return;
+		}
+		int candidate = d + weight;
+		Integer current = distances.get(to);
+		if (current == null || candidate < current) {
+			distances.put(to, candidate);
+			parents.put(to, from);
+			lastRepairSize++;
+			PriorityQueue<Label> queue = new PriorityQueue<>();
+			queue.add(new Label(to, candidate));
+			propagate(queue, null);
+		}
+	}
+
+	/**
+	 * Relabel the subtree hanging from a town whose path got longer. Every town of the subtree
+	 * first takes its best distance through a neighbour outside the subtree, then a Dijkstra over
+	 * the subtree settles them
+	 * @param root the town at the top of the subtree
+	 */
+	private void repairSubtree(Town root) {
+		// The subtree: towns whose chain of parents goes through the root
+		Set<Town> affected = new HashSet<>();
+		ArrayDeque<Town> stack = new ArrayDeque<>();
+		affected.add(root);
+		stack.push(root);
+		while (stack.isEmpty() == false) {
+			Town town = stack.pop();
+			for (Town t: graph.neighbours(town).keySet()) {
+				if (town.equals(parents.get(t)) && affected.add(t)) {
+					stack.push(t);
+				}
+			}
+		}
+		for (Town town: affected) {
+			distances.remove(town);
+			parents.remove(town);
+		}
+
+		PriorityQueue<Label> queue = new PriorityQueue<>();
+		for (Town town: affected) {
+			for (Map.Entry<Town, Road> neighbour: graph.neighbours(town).entrySet()) {
+				Integer d = distances.get(neighbour.getKey());
+				if (d == null || affected.contains(neighbour.getKey())) {
+					continue;
+				}
+				int candidate = d + neighbour.getValue().getWeight();
+				Integer current = distances.get(town);
+				if (current == null || candidate < current) {
+					distances.put(town, candidate);
+					parents.put(town, neighbour.getKey());
+				}
+			}
+			Integer d = distances.get(town);
+			if (d != null) {
+				queue.add(new Label(town, d));
+			}
+		}
+		lastRepairSize = affected.size();
+		propagate(queue, affected);
+	}
+
+	/**
+	 * Dijkstra from the labels in the queue, passing on every improvement
+	 * @param queue the towns whose labels just changed
+	 * @param within the only towns whose labels may change, or null for any town
+	 */
+	private void propagate(PriorityQueue<Label> queue, Set<Town> within) {
+		while (queue.isEmpty() == false) {
+			Label label = queue.poll();
+			Town town = label.town;
+			if (distances.get(town) != label.distance) {
+				continue; // Stale entry, the town got a better label since
+			}
+			for (Map.Entry<Town, Road> neighbour: graph.neighbours(town).entrySet()) {
+				Town t = neighbour.getKey();
+				if (within != null && within.contains(t) == false) {
+					continue;
+				}
+				int weight = label.distance + neighbour.getValue().getWeight();
+				Integer current = distances.get(t);
+				if (current == null || weight < current) {
+					distances.put(t, weight);
+					parents.put(t, town);
+					queue.add(new Label(t, weight));
+					if (within == null) {
+						lastRepairSize++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A town and the distance it was queued with
+	 */
+	private static class Label implements Comparable<Label> {
+		private final Town town;
+		private final int distance;
+
+		Label(Town town, int distance) {
+			this.town = town;
+			this.distance = distance;
+		}
+
+		@Override
+		public int compareTo(Label o) {
+			return Integer.compare(distance, o.distance);
+		}
+	}
+
+}
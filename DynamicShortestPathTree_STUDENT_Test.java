@@ -0,0 +1,107 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class DynamicShortestPathTree_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSetWeight() {
+		DynamicShortestPathTree tree = graph.trackShortestPaths(town[1]);
+		assertEquals(8, tree.distance(town[11]));
+		graph.getEdge(town[2], town[11]).setWeight(20);
+		assertEquals(11, tree.distance(town[11]));
+		assertEquals(graph.shortestPath(town[1], town[11]), tree.shortestPath(town[11]));
+		graph.getEdge(town[1], town[5]).setWeight(1);
+		assertEquals(1, tree.distance(town[5]));
+		assertEquals(6, tree.distance(town[10]));
+		assertEquals(graph.shortestPath(town[1], town[6]), tree.shortestPath(town[6]));
+	}
+
+	@Test
+	public void testOnlyAffectedTownsRepaired() {
+		DynamicShortestPathTree tree = graph.trackShortestPaths(town[1]);
+		// Town_7 is a leaf of the tree, nothing else hangs from Road_4
+		graph.getEdge(town[3], town[7]).setWeight(3);
+		assertEquals(1, tree.getLastRepairSize());
+		assertEquals(7, tree.distance(town[7]));
+		// Road_10 is not on any shortest path
+		graph.getEdge(town[5], town[10]).setWeight(9);
+		assertEquals(0, tree.getLastRepairSize());
+	}
+
+	@Test
+	public void testAddAndRemoveRoads() {
+		DynamicShortestPathTree tree = graph.trackShortestPaths(town[1]);
+		assertEquals(CompactGraph.UNREACHABLE, tree.distance(town[12]));
+		graph.addEdge(town[12], town[7], 1, "Road_13");
+		assertEquals(6, tree.distance(town[12]));
+		graph.removeEdge(town[1], town[3], 4, "Road_2");
+		assertEquals(graph.snapshot().distance(0, graph.snapshot().idOf("Town_12")), tree.distance(town[12]));
+		graph.removeVertex(town[10]);
+		assertEquals(CompactGraph.UNREACHABLE, tree.distance(town[12]));
+		assertTrue(tree.shortestPath(town[12]).isEmpty());
+		assertTrue(graph.untrack(tree));
+		graph.addEdge(town[12], town[1], 1, "Road_14");
+		assertEquals(CompactGraph.UNREACHABLE, tree.distance(town[12]));
+	}
+
+	@Test
+	public void testRandomChanges() {
+		Graph big = new Graph();
+		Town[] towns = new Town[300];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("T" + i);
+			big.addVertex(towns[i]);
+		}
+		Random random = new Random(3);
+		for (int i = 0; i < 700; i++) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a != b) {
+				big.addEdge(towns[a], towns[b], 1 + random.nextInt(20), "R" + i);
+			}
+		}
+		DynamicShortestPathTree tree = big.trackShortestPaths(towns[0]);
+		for (int step = 0; step < 300; step++) {
+			ArrayList<Road> roads = new ArrayList<>(big.edgeSet());
+			Road r = roads.get(random.nextInt(roads.size()));
+			switch (random.nextInt(4)) {
+			case 0:
+				big.removeEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
+				break;
+			case 1:
+				int a = random.nextInt(towns.length);
+				int b = random.nextInt(towns.length);
+				if (a != b) {
+					big.addEdge(towns[a], towns[b], 1 + random.nextInt(20), "S" + step);
+				}
+				break;
+			default:
+				r.setWeight(1 + random.nextInt(20));
+			}
+			ShortestPathTree expected = big.shortestPathTree(towns[0]);
+			for (Town t: towns) {
+				assertEquals(expected.distance(t.getName()), tree.distance(t));
+			}
+		}
+	}
+}
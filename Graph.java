@@ -1,16 +1,36 @@
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 public class Graph implements GraphInterface<Town, Road> {
 
 	// Variables
 	private Set<Town> towns;
 	private Set<Road> roads;
-	private Set<Town> checkedPathsList;
-	private Set<Town> uncheckedPathsList;
-	private ArrayList<String> paths = new ArrayList<>();
+	private Map<Town, Map<Town, Road>> adjacency; // town -> neighbour -> road
+	private volatile ShortestPathTree lastTree; // tree from the last dijkstraShortestPath call
+	private volatile int version; // bumped by every change, lets derived data notice it is stale
+	private volatile HeuristicScale heuristicScale; // A* scale, valid for one version
+	private volatile int structureVersion; // bumped by changes to the towns and roads, not to distances
+	private volatile CompactGraph snapshot; // CSR copy, valid while snapshotVersion is current
+	private volatile int snapshotVersion;
+	private int snapshotStructure; // structureVersion the snapshot was built at
+	private final Set<Road> reweighted = ConcurrentHashMap.newKeySet(); // roads whose distance changed since the snapshot
+	private volatile ContractionHierarchy hierarchy; // built over one snapshot
+	private final Object hierarchyLock = new Object(); // held while the hierarchy is rebuilt
+	private volatile LandmarkTable landmarks; // built over one snapshot
+	private final Object landmarkLock = new Object(); // held while the landmark table is rebuilt
+	private final List<DynamicShortestPathTree> trackedTrees = new CopyOnWriteArrayList<>();
 
 	/**
 	 * Constructor
@@ -18,8 +38,7 @@ public class Graph implements GraphInterface<Town, Road> {
 	public Graph() {
 		towns = new HashSet<>();
 		roads = new HashSet<>();
-		checkedPathsList = new HashSet<>();
-		uncheckedPathsList = new HashSet<>(towns);
+		adjacency = new HashMap<>();
 	}
 
 	/**
@@ -46,13 +65,7 @@ public class Graph implements GraphInterface<Town, Road> {
 			throw new NullPointerException("One or both vertices provided are null");
 		}
 
-		Road theRoad = null;
-		for (Road r: roads) {
-			if (r.contains(sourceVertex) == true && r.contains(destinationVertex) == true) {
-				theRoad = r;
-			}
-		}
-		return theRoad;
+		return adjacency.get(sourceVertex).get(destinationVertex);
 	}
 
 	/**
@@ -84,7 +97,19 @@ public class Graph implements GraphInterface<Town, Road> {
 		sourceVertex.getTowns().add(destinationVertex); // Town A to town B
 		destinationVertex.getTowns().add(sourceVertex); // Town B to town A
 		Road r = new Road(sourceVertex, destinationVertex, weight, description); // Initialize the road
+		Road old = adjacency.get(sourceVertex).put(destinationVertex, r);
+		adjacency.get(destinationVertex).put(sourceVertex, r);
+		if (old != null) {
+			roads.remove(old); // Only one road is kept between two towns
+			old.setGraph(null);
+		}
 		roads.add(r); // Add the road to the Road's hashSet		
+		r.setGraph(this);
+		structureVersion++;
+		version++;
+		for (DynamicShortestPathTree tree: trackedTrees) {
+			tree.roadChanged(sourceVertex, destinationVertex);
+		}
 		return r;
 	}
 
@@ -98,16 +123,22 @@ public class Graph implements GraphInterface<Town, Road> {
 	 */
 	@Override
 	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
-		Road theRoad = null;
-		for (Road r: roads) {
-			if (r.contains(sourceVertex) && r.contains(destinationVertex)
-					&& weight > -1 && description != null) {
-				theRoad = r;
-			}
+		Map<Town, Road> neighbours = adjacency.get(sourceVertex);
+		Road theRoad = neighbours == null? null: neighbours.get(destinationVertex);
+		if (theRoad == null || weight <= -1 || description == null) {
+			return null;
 		}
-		sourceVertex.getTowns().remove(destinationVertex); // Town A to town B
-		destinationVertex.getTowns().remove(sourceVertex); // Town B to town A
+		neighbours.remove(destinationVertex);
+		adjacency.get(destinationVertex).remove(sourceVertex);
+		theRoad.getSource().getTowns().remove(theRoad.getDestination()); // Town A to town B
+		theRoad.getDestination().getTowns().remove(theRoad.getSource()); // Town B to town A
 		roads.remove(theRoad);
+		theRoad.setGraph(null);
+		structureVersion++;
+		version++;
+		for (DynamicShortestPathTree tree: trackedTrees) {
+			tree.roadChanged(sourceVertex, destinationVertex);
+		}
 		return theRoad;
 	}
 
@@ -118,7 +149,8 @@ public class Graph implements GraphInterface<Town, Road> {
 	 */
 	@Override
 	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
-		return getEdge(sourceVertex, destinationVertex) != null? true: false;
+		Map<Town, Road> neighbours = adjacency.get(sourceVertex);
+		return neighbours != null && neighbours.containsKey(destinationVertex);
 	}
 
 	/**
@@ -131,13 +163,11 @@ public class Graph implements GraphInterface<Town, Road> {
 		if (vertex == null) {
 			throw new NullPointerException("The town you are looking for does not exist (null)");
 		}
-		Set<Road> theRoads = new HashSet<>();
-		for (Road r: roads) {
-			if (r.contains(vertex)) {
-				theRoads.add(r);
-			}
+		Map<Town, Road> neighbours = adjacency.get(vertex);
+		if (neighbours == null) {
+			return new HashSet<>();
 		}
-		return theRoads;
+		return new HashSet<>(neighbours.values());
 	}
 
 	/**
@@ -151,6 +181,9 @@ public class Graph implements GraphInterface<Town, Road> {
 			throw new NullPointerException("The town (vertex) you want to add is null");
 		}
 		if (towns.contains(v) == false) {
+			adjacency.put(v, new HashMap<>());
+			structureVersion++;
+			version++;
 			return towns.add(v);
 		}
 		return false;
@@ -165,7 +198,27 @@ public class Graph implements GraphInterface<Town, Road> {
 		if (v == null) {
 			return false;
 		}
-		return towns.remove(v);
+		Map<Town, Road> neighbours = adjacency.remove(v);
+		if (neighbours != null) {
+			// Remove every road touching the town
+			for (Map.Entry<Town, Road> entry: neighbours.entrySet()) {
+				Road r = entry.getValue();
+				adjacency.get(entry.getKey()).remove(v);
+				r.getSource().getTowns().remove(r.getDestination());
+				r.getDestination().getTowns().remove(r.getSource());
+				roads.remove(r);
+				r.setGraph(null);
+			}
+			structureVersion++;
+			version++;
+		}
+		boolean removed = towns.remove(v);
+		if (removed) {
+			for (DynamicShortestPathTree tree: trackedTrees) {
+				tree.rebuild();
+			}
+		}
+		return removed;
 	}
 
 	/**
@@ -178,99 +231,540 @@ public class Graph implements GraphInterface<Town, Road> {
 	}
 
 	/**
-	 * Use the Dijkstra algorithm to find the shortest path from the specified town
+	 * Return an immutable CSR copy of the graph as it is now. The copy is kept and handed out again
+	 * until the graph changes, without locking. When only road distances changed, the last copy is
+	 * patched with them rather than rebuilt
+	 * @return the snapshot of the current graph
+	 */
+	public CompactGraph snapshot() {
+		// The version is read before the snapshot, which is published before its version
+		if (snapshotVersion == version) {
+			CompactGraph current = snapshot;
+			if (current != null) {
+				return current;
+			}
+		}
+		return refreshSnapshot();
+	}
+
+	/**
+	 * Bring the snapshot up to date, one thread at a time
+	 * @return the snapshot of the current graph
+	 */
+	private synchronized CompactGraph refreshSnapshot() {
+		int current = version; // Read first, a change made after it is picked up by the next refresh
+		int structure = structureVersion;
+		if (snapshot != null && snapshotVersion == current) {
+			return snapshot;
+		}
+		// Roads whose distance changes from here on stay in the set for the next refresh
+		List<Road> changed = new ArrayList<>();
+		for (Iterator<Road> it = reweighted.iterator(); it.hasNext(); ) {
+			changed.add(it.next());
+			it.remove();
+		}
+		if (snapshot == null || snapshotStructure != structure) {
+			snapshot = new CompactGraph(this);
+			snapshotStructure = structure;
+		}
+		else if (changed.isEmpty() == false) {
+			snapshot = snapshot.withRoadWeights(changed);
+		}
+		snapshotVersion = current;
+		return snapshot;
+	}
+
+	/**
+	 * Return the connected components of the graph, labelled once per snapshot. A change to the
+	 * roads or towns gives a new snapshot, so the components are never updated in place
+	 * @return the components of the current graph
+	 */
+	public ConnectedComponents components() {
+		return snapshot().components();
+	}
+
+	/**
+	 * Return true if a path of roads joins the two towns. The answer comes from the component
+	 * labels of the current snapshot, so it takes no lock and changes nothing
+	 * @param sourceVertex one town
+	 * @param destinationVertex the other town
+	 */
+	public boolean isConnected(Town sourceVertex, Town destinationVertex) {
+		return components().connected(sourceVertex, destinationVertex);
+	}
+
+	/**
+	 * Return the size of every connected component of the graph
+	 * @return sizes an arraylist of the sizes, largest first
+	 */
+	public ArrayList<Integer> componentSizes() {
+		return components().sizes();
+	}
+
+	/**
+	 * Return a minimum spanning forest of the graph, one tree per connected component
+	 * @return the forest, with its roads and total distance
+	 */
+	public SpanningForest spanningForest() {
+		return new SpanningForest(this);
+	}
+
+	/**
+	 * Return the Contraction Hierarchy of the graph as it is now, building it if the graph changed
+	 * since it was last built. A current hierarchy is returned without locking; a rebuild holds a
+	 * lock of its own, so it only holds up the callers waiting for the new hierarchy
+	 * @return the hierarchy over the current snapshot
+	 */
+	public ContractionHierarchy contractionHierarchy() {
+		CompactGraph current = snapshot();
+		ContractionHierarchy built = hierarchy;
+		if (built != null && built.getGraph() == current) {
+			return built;
+		}
+		synchronized (hierarchyLock) {
+			current = snapshot(); // Another thread may have rebuilt it, or the graph changed again
+			if (hierarchy == null || hierarchy.getGraph() != current) {
+				hierarchy = new ContractionHierarchy(current);
+			}
+			return hierarchy;
+		}
+	}
+
+	/**
+	 * Return the landmark distance table of the graph as it is now. Adding or removing a road or
+	 * town makes the table stale, and it is rebuilt on the next call. A current table is returned
+	 * without locking, and a rebuild holds a lock of its own
+	 * @return the landmark table over the current snapshot
+	 */
+	public LandmarkTable landmarkTable() {
+		CompactGraph current = snapshot();
+		LandmarkTable built = landmarks;
+		if (built != null && built.getGraph() == current) {
+			return built;
+		}
+		synchronized (landmarkLock) {
+			current = snapshot(); // Another thread may have rebuilt it, or the graph changed again
+			if (landmarks == null || landmarks.getGraph() != current) {
+				landmarks = new LandmarkTable(current);
+			}
+			return landmarks;
+		}
+	}
+
+	/**
+	 * Return the shortest distance between every pair of towns, indexed by the town ids of the
+	 * current snapshot. The matrix is computed on each call and not kept
+	 * @return the distance matrix, which reports its algorithm, time and peak memory
+	 */
+	public DistanceMatrix distanceMatrix() {
+		return new DistanceMatrix(snapshot());
+	}
+
+	/**
+	 * Set the position of a town in the graph, used by the A* search
+	 * @param v the town to place, the instance that was added to the graph
+	 * @param x the x coordinate (or longitude) of the town
+	 * @param y the y coordinate (or latitude) of the town
+	 * @return true if the town is in the graph, false otherwise
+	 */
+	public boolean setCoordinates(Town v, double x, double y) {
+		if (containsVertex(v) == false) {
+			return false;
+		}
+		v.setCoordinates(x, y);
+		version++;
+		return true;
+	}
+
+	/**
+	 * Called by a road of the graph when its distance changes
+	 * @param r the road that changed
+	 */
+	void roadWeightChanged(Road r) {
+		reweighted.add(r); // Before the version, so a refresh that sees the version sees the road
+		version++;
+		for (DynamicShortestPathTree tree: trackedTrees) {
+			tree.roadChanged(r.getSource(), r.getDestination());
+		}
+	}
+
+	/**
+	 * Return the shortest paths from a town, kept up to date by the graph as roads are added,
+	 * removed or change distance, until untrack is called
+	 * @param sourceVertex the town the paths start from
+	 * @return the tree, repaired after every change to the roads
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public DynamicShortestPathTree trackShortestPaths(Town sourceVertex) {
+		if (containsVertex(sourceVertex) == false) {
+			throw new IllegalArgumentException("Town not in the graph");
+		}
+		DynamicShortestPathTree tree = new DynamicShortestPathTree(this, sourceVertex);
+		trackedTrees.add(tree);
+		return tree;
+	}
+
+	/**
+	 * Stop keeping a tree up to date
+	 * @param tree a tree returned by trackShortestPaths
+	 * @return true if the tree was tracked
+	 */
+	public boolean untrack(DynamicShortestPathTree tree) {
+		return trackedTrees.remove(tree);
+	}
+
+	/**
+	 * Return the roads of a town by the town at their other end
+	 * @param town the town
+	 * @return neighbours the live map of the graph, which must not be changed
+	 */
+	Map<Town, Road> neighbours(Town town) {
+		Map<Town, Road> neighbours = adjacency.get(town);
+		return neighbours == null? Collections.emptyMap(): neighbours;
+	}
+
+	/**
+	 * Use the Dijkstra algorithm to find the shortest path from the specified town. The result is
+	 * kept and returned by getShortestPathTree
 	 * @param sourceVertex the town to reach
 	 */
 	@Override
 	public void dijkstraShortestPath(Town sourceVertex) {
-		Boolean isFound = false;
-		while (isFound == false && uncheckedPathsList.isEmpty() == false) {
-			isFound = true;
-			Town nextTown = null;
-			int w = Integer.MAX_VALUE;
-
-			for (Town town: checkedPathsList) {
-				Set<Town> checked = town.getTowns();
-				Set<Town> unchecked = new HashSet<>();
-				for (Town t: checked) {
-					if (uncheckedPathsList.contains(t) == false) {
-						continue;
-					}
-					unchecked.add(t);
-				}
-				for (Town t: unchecked) {
-					int weight = t.equals(sourceVertex)? 0: town.getWeight() + getEdge(town, t).weight;
-					if (weight < w) {
-						w = weight;
-						nextTown = t;
-						t.setPreviousTown(town);
-					}
-				}
-			}
+		lastTree = shortestPathTree(sourceVertex);
+	}
 
-			if (nextTown != null) {
-				isFound = false;
-				nextTown.setWeight(w);
-				checkedPathsList.add(nextTown);
-				paths.add(nextTown.getName());
-				uncheckedPathsList.remove(nextTown);
-			}
+	/**
+	 * Return the shortest paths from a town to every town of the graph as it is now
+	 * @param sourceVertex the town the paths start from
+	 * @return the shortest path tree, which can be read from many threads
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public ShortestPathTree shortestPathTree(Town sourceVertex) {
+		CompactGraph current = snapshot();
+		int source = sourceVertex == null? -1: current.idOf(sourceVertex.getName());
+		if (source == -1) {
+			throw new IllegalArgumentException("Town not in the graph");
 		}
+		return new ShortestPathTree(current, source);
+	}
 
+	/**
+	 * Return the shortest paths from a town to every town of the graph as it is now, computed by
+	 * delta-stepping on all cores. The distances are the same as those of shortestPathTree
+	 * @param sourceVertex the town the paths start from
+	 * @return the shortest path tree, which can be read from many threads
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public ShortestPathTree parallelShortestPathTree(Town sourceVertex) {
+		CompactGraph current = snapshot();
+		int source = sourceVertex == null? -1: current.idOf(sourceVertex.getName());
+		if (source == -1) {
+			throw new IllegalArgumentException("Town not in the graph");
+		}
+		return new DeltaStepping(current).tree(source);
 	}
 
 	/**
-	 * Represent the paths as a String
-	 * @param paths arraylist of paths
-	 * @param sourceVertex town A where the path starts
-	 * @param destinationVertex town B where the path ends
+	 * Return the tree built by the last dijkstraShortestPath call
+	 * @return lastTree the shortest path tree, or null if dijkstraShortestPath was not called
 	 */
-	private void pathsPattern(ArrayList<String> paths, Town sourceVertex, Town destinationVertex) {
-		try {		
-			StringBuilder pathsStr = new StringBuilder();
-			Road r = getEdge(destinationVertex.getPreviousTown(), destinationVertex);
-			pathsStr.append(r.toString());
-			paths.add(pathsStr.toString());
+	public ShortestPathTree getShortestPathTree() {
+		return lastTree;
+	}
 
-			while (destinationVertex.getPreviousTown().equals(sourceVertex) == false) {
-				pathsPattern(paths, sourceVertex, destinationVertex.getPreviousTown());
-			}
-		} 
-		catch(Exception e) {
-			System.out.println("Cleaning paths... ");
-			paths.clear();
+	/**
+	 * Return the towns within the given distance of a town, with their distances, in the order
+	 * the search settles them (closest first)
+	 * @param sourceVertex the town the distances are measured from
+	 * @param budget the largest distance to report
+	 * @return towns town -> distance, in settle order
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public LinkedHashMap<Town, Integer> reachableWithin(Town sourceVertex, int budget) {
+		LinkedHashMap<Town, Integer> towns = new LinkedHashMap<>();
+		reachableWithin(sourceVertex, budget, towns::put);
+		return towns;
+	}
+
+	/**
+	 * Hand each town within the given distance of a town to the visitor as soon as the search
+	 * settles it, closest first. The search runs over the snapshot with the thread's stamped
+	 * labels, and roads that lead past the budget are not followed, so the work depends on the
+	 * region reached and not on the size of the graph
+	 * @param sourceVertex the town the distances are measured from
+	 * @param budget the largest distance to report
+	 * @param visitor receives each town and its distance
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public void reachableWithin(Town sourceVertex, int budget, BiConsumer<Town, Integer> visitor) {
+		if (containsVertex(sourceVertex) == false) {
+			throw new IllegalArgumentException("Town not in the graph");
 		}
+		CompactGraph current = snapshot();
+		current.reachableWithin(current.idOf(sourceVertex.getName()), budget,
+				(town, distance) -> visitor.accept(current.town(town), distance));
 	}
 
 	/**
 	 * Find the shortest path from town A to town B
 	 * @param sourceVertex town A where the path starts
 	 * @param destinationVertex town B where the path ends
-	 * @return paths an arraylist of the shortest paths
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
 	 */
 	@Override
 	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
-		checkedPathsList = new HashSet<Town>();
-		uncheckedPathsList = new HashSet<Town>(towns);
-		checkedPathsList.add(sourceVertex); // Add it to the checked towns list
-		uncheckedPathsList.remove(sourceVertex); // Remove it from the unchecked towns list
-
-		for (Town town: towns) {
-			town.setWeight(Integer.MAX_VALUE);
-			town.setPreviousTown(null);
-		}
-
-		sourceVertex.setWeight(0); // Set source vertex (town) to 0
-		dijkstraShortestPath(sourceVertex);
-		StringBuilder shortPaths = new StringBuilder();
-		Road r = getEdge(destinationVertex.getPreviousTown(), destinationVertex);
-		shortPaths.append(r.toString());
-		paths.add(shortPaths.toString());
-		if (destinationVertex.getPreviousTown().equals(sourceVertex) == false) {
-			pathsPattern(paths, sourceVertex, destinationVertex.getPreviousTown());
-		}
-		Collections.reverse(paths);
-		return paths;
+		return shortestPath(sourceVertex, destinationVertex, SearchMode.DIJKSTRA);
+	}
+
+	/**
+	 * Find the shortest path from town A to town B with the given search algorithm
+	 * @param sourceVertex town A where the path starts
+	 * @param destinationVertex town B where the path ends
+	 * @param mode the search algorithm to use
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, SearchMode mode) {
+		return shortestRoute(sourceVertex, destinationVertex, mode).toPaths();
+	}
+
+	/**
+	 * Find the shortest route from town A to town B with the given search algorithm
+	 * @param sourceVertex town A where the route starts
+	 * @param destinationVertex town B where the route ends
+	 * @param mode the search algorithm to use
+	 * @return the route, Route.NONE if town B cannot be reached
+	 */
+	public Route shortestRoute(Town sourceVertex, Town destinationVertex, SearchMode mode) {
+		if (containsVertex(sourceVertex) == false || containsVertex(destinationVertex) == false) {
+			return Route.NONE;
+		}
+		if (isConnected(sourceVertex, destinationVertex) == false) {
+			return Route.NONE; // Towns in different components, no search needed
+		}
+		if (mode == SearchMode.BIDIRECTIONAL) {
+			return bidirectionalShortestRoute(sourceVertex, destinationVertex);
+		}
+		if (mode == SearchMode.CONTRACTION_HIERARCHY) {
+			return contractionHierarchy().shortestRoute(sourceVertex.getName(), destinationVertex.getName());
+		}
+		if (mode == SearchMode.ALT) {
+			return landmarkTable().shortestRoute(sourceVertex.getName(), destinationVertex.getName());
+		}
+		double scale = mode == SearchMode.ASTAR? heuristicScale(): -1;
+		if (scale <= 0) {
+			// Dijkstra over the snapshot, reusing this thread's labels and queue between queries
+			return snapshot().shortestRoute(sourceVertex.getName(), destinationVertex.getName());
+		}
+		SearchState state = astarShortestPath(sourceVertex, destinationVertex, scale);
+		if (state.previousTowns.containsKey(destinationVertex) == false) {
+			return Route.NONE;
+		}
+
+		ArrayList<Town> towns = new ArrayList<>();
+		for (Town town = destinationVertex; town != null; town = state.previousTowns.get(town)) {
+			towns.add(town);
+		}
+		Collections.reverse(towns);
+		return route(towns);
+	}
+
+	/**
+	 * A* from the source town, ordering the queue by distance so far plus scale times the 
+	 * straight-line distance left to the destination
+	 * @param sourceVertex the town where the search starts
+	 * @param destinationVertex the town to stop at
+	 * @param scale miles per unit of straight-line distance, never more than any road allows
+	 * @return state the distances and previous towns found by the search
+	 */
+	private SearchState astarShortestPath(Town sourceVertex, Town destinationVertex, double scale) {
+		SearchState state = new SearchState();
+		PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+		state.distances.put(sourceVertex, 0);
+		queue.add(new QueueEntry(sourceVertex, 0));
+
+		while (queue.isEmpty() == false) {
+			Town town = queue.poll().town;
+			if (state.settled.add(town) == false) {
+				continue; // Stale entry, the town was already settled
+			}
+			if (town.equals(destinationVertex)) {
+				break;
+			}
+			int distance = state.distances.get(town);
+			for (Map.Entry<Town, Road> neighbour: adjacency.get(town).entrySet()) {
+				Town t = neighbour.getKey();
+				int weight = distance + neighbour.getValue().getWeight();
+				Integer current = state.distances.get(t);
+				if (current == null || weight < current) {
+					state.distances.put(t, weight);
+					state.previousTowns.put(t, town);
+					// The heuristic is consistent, so a settled town is never improved
+					int estimate = (int) Math.min(Integer.MAX_VALUE, weight + (long) (scale * t.distanceTo(destinationVertex)));
+					queue.add(new QueueEntry(t, estimate));
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Return the A* scale: the largest number of miles per unit of straight-line distance that no
+	 * road undercuts. Scaling the straight-line distance by it gives a consistent heuristic
+	 * @return the scale, or -1 if a town has no coordinates and A* falls back to Dijkstra
+	 */
+	private double heuristicScale() {
+		HeuristicScale cached = heuristicScale;
+		int current = version;
+		if (cached != null && cached.version == current) {
+			return cached.scale;
+		}
+		double scale = Double.MAX_VALUE;
+		for (Road r: roads) {
+			if (r.getSource().hasCoordinates() == false || r.getDestination().hasCoordinates() == false) {
+				scale = -1;
+				break;
+			}
+			double length = r.getSource().distanceTo(r.getDestination());
+			if (length > 0) {
+				scale = Math.min(scale, r.getWeight() / length);
+			}
+		}
+		for (Town t: towns) {
+			if (t.hasCoordinates() == false) {
+				scale = -1;
+			}
+		}
+		if (scale == Double.MAX_VALUE) {
+			scale = -1; // no road has a length, the heuristic would tell nothing
+		}
+		heuristicScale = new HeuristicScale(current, scale);
+		return scale;
+	}
+
+	/**
+	 * Find the shortest path from town A to town B by growing a search from each end. The side
+	 * with the closer frontier goes next, and the search stops once the two frontiers together are
+	 * at least as long as the best path found through a town labelled by both sides
+	 * @param sourceVertex town A where the path starts
+	 * @param destinationVertex town B where the path ends
+	 * @return the route, Route.NONE if town B cannot be reached
+	 */
+	private Route bidirectionalShortestRoute(Town sourceVertex, Town destinationVertex) {
+		SearchState forward = new SearchState();
+		SearchState backward = new SearchState();
+		PriorityQueue<QueueEntry> forwardQueue = new PriorityQueue<>();
+		PriorityQueue<QueueEntry> backwardQueue = new PriorityQueue<>();
+		forward.distances.put(sourceVertex, 0);
+		backward.distances.put(destinationVertex, 0);
+		forwardQueue.add(new QueueEntry(sourceVertex, 0));
+		backwardQueue.add(new QueueEntry(destinationVertex, 0));
+
+		int best = sourceVertex.equals(destinationVertex)? 0: Integer.MAX_VALUE;
+		Town meeting = sourceVertex.equals(destinationVertex)? sourceVertex: null;
+		while (forwardQueue.isEmpty() == false && backwardQueue.isEmpty() == false) {
+			if ((long) forwardQueue.peek().weight + backwardQueue.peek().weight >= best) {
+				break;
+			}
+			// Roads are undirected, so both sides relax the same adjacency
+			boolean isForward = forwardQueue.peek().weight <= backwardQueue.peek().weight;
+			SearchState state = isForward? forward: backward;
+			SearchState other = isForward? backward: forward;
+			PriorityQueue<QueueEntry> queue = isForward? forwardQueue: backwardQueue;
+
+			QueueEntry entry = queue.poll();
+			Town town = entry.town;
+			if (state.settled.add(town) == false) {
+				continue; // Stale entry, the town was already settled
+			}
+			for (Map.Entry<Town, Road> neighbour: adjacency.get(town).entrySet()) {
+				Town t = neighbour.getKey();
+				int weight = entry.weight + neighbour.getValue().getWeight();
+				Integer current = state.distances.get(t);
+				if (current == null || weight < current) {
+					state.distances.put(t, weight);
+					state.previousTowns.put(t, town);
+					queue.add(new QueueEntry(t, weight));
+				}
+				Integer otherWeight = other.distances.get(t);
+				if (otherWeight != null && (long) weight + otherWeight < best) {
+					best = weight + otherWeight;
+					meeting = t;
+				}
+			}
+		}
+
+		if (meeting == null) {
+			return Route.NONE;
+		}
+		ArrayList<Town> towns = new ArrayList<>();
+		for (Town town = meeting; town != null; town = forward.previousTowns.get(town)) {
+			towns.add(town);
+		}
+		Collections.reverse(towns);
+		for (Town town = backward.previousTowns.get(meeting); town != null; town = backward.previousTowns.get(town)) {
+			towns.add(town);
+		}
+		return route(towns);
+	}
+
+	/**
+	 * Return the route through the given towns, each one joined to the next by a road
+	 * @param towns the towns along the route, in order
+	 * @return the route
+	 */
+	Route route(List<Town> towns) {
+		int count = towns.size() - 1;
+		String[] names = new String[count + 1];
+		String[] roads = new String[count];
+		int[] weights = new int[count];
+		names[0] = towns.get(0).getName();
+		for (int i = 0; i < count; i++) {
+			Road r = getEdge(towns.get(i), towns.get(i + 1));
+			names[i + 1] = towns.get(i + 1).getName();
+			roads[i] = r.getName();
+			weights[i] = r.getWeight();
+		}
+		return new Route(names, roads, weights);
+	}
+
+	/**
+	 * Distance and previous town labels of one search
+	 */
+	private static class SearchState {
+		private final Map<Town, Integer> distances = new HashMap<>();
+		private final Map<Town, Town> previousTowns = new HashMap<>();
+		private final Set<Town> settled = new HashSet<>();
+	}
+
+	/**
+	 * The A* scale worked out for one version of the graph
+	 */
+	private static class HeuristicScale {
+		private final int version;
+		private final double scale;
+
+		HeuristicScale(int version, double scale) {
+			this.version = version;
+			this.scale = scale;
+		}
+	}
+
+	/**
+	 * A town waiting in the Dijkstra queue with the distance it was queued at
+	 */
+	private static class QueueEntry implements Comparable<QueueEntry> {
+		private final Town town;
+		private final int weight;
+
+		QueueEntry(Town town, int weight) {
+			this.town = town;
+			this.weight = weight;
+		}
+
+		@Override
+		public int compareTo(QueueEntry o) {
+			return Integer.compare(weight, o.weight);
+		}
 	}
 
 }
\ No newline at end of file
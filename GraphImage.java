@@ -0,0 +1,615 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A read-only town graph used in place from a memory-mapped file. The file holds a CSR graph in
+ * fixed-layout little-endian sections (arc offsets, targets, distances, road ids, name offsets and
+ * the UTF-8 name bytes), each mapped on its own, so opening an image reads only its header however
+ * large the graph is, and JVMs that open the same file share its pages through the page cache.
+ * Towns are stored in the unsigned order of their name bytes, so a name is found by binary search
+ * over the mapped bytes. Queries work straight on the mapped sections; Strings are only made for
+ * the names a call returns. The calls of TownGraphManagerInterface that change the graph throw
+ * UnsupportedOperationException.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class GraphImage implements TownGraphManagerInterface {
+
+	/** First four bytes of an image file, "TGIM" */
+	public static final int MAGIC = 0x5447494D;
+
+	/** Format version written, and the only one opened */
+	public static final int VERSION = 1;
+
+	// Sections, in file order
+	private static final int OFFSETS = 0; // int per town, plus one: first arc of the town
+	private static final int TARGETS = 1; // int per arc: town at the other end
+	private static final int WEIGHTS = 2; // int per arc: distance
+	private static final int ARC_ROADS = 3; // int per arc: road id
+	private static final int TOWN_NAMES = 4; // int per town, plus one: first byte of the name
+	private static final int ROAD_NAMES = 5; // int per road, plus one: first byte of the name
+	private static final int NAME_BYTES = 6; // the UTF-8 names, towns then roads
+	private static final int SECTION_COUNT = 7;
+
+	// magic, version, town count, road count, arc count, longest road, then offset and length of each section
+	private static final int HEADER_SIZE = 24 + 16 * SECTION_COUNT;
+
+	// Variables
+	private final int townCount;
+	private final int roadCount;
+	private final IntBuffer offsets;
+	private final IntBuffer targets;
+	private final IntBuffer weights;
+	private final IntBuffer arcRoads;
+	private final IntBuffer townNames;
+	private final IntBuffer roadNames;
+	private final ByteBuffer nameBytes;
+	private final int maxWeight; // longest road, -1 if a road has a negative distance
+
+	/**
+	 * Constructor over the mapped sections
+	 */
+	private GraphImage(int townCount, int roadCount, int maxWeight, ByteBuffer[] sections) {
+		this.townCount = townCount;
+		this.roadCount = roadCount;
+		offsets = sections[OFFSETS].asIntBuffer();
+		targets = sections[TARGETS].asIntBuffer();
+		weights = sections[WEIGHTS].asIntBuffer();
+		arcRoads = sections[ARC_ROADS].asIntBuffer();
+		townNames = sections[TOWN_NAMES].asIntBuffer();
+		roadNames = sections[ROAD_NAMES].asIntBuffer();
+		nameBytes = sections[NAME_BYTES];
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Write an image of a snapshot to a file, replacing what the file held
+	 * @param graph the snapshot to write
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(CompactGraph graph, File file) throws IOException {
+		int n = graph.townCount();
+		int roads = graph.roadCount();
+		int arcs = graph.firstArc(n);
+
+		// New town ids in the byte order of the names
+		byte[][] names = new byte[n][];
+		Integer[] order = new Integer[n];
+		for (int town = 0; town < n; town++) {
+			names[town] = graph.townName(town).getBytes(StandardCharsets.UTF_8);
+			order[town] = town;
+		}
+		Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+		int[] newIds = new int[n];
+		for (int i = 0; i < n; i++) {
+			newIds[order[i]] = i;
+		}
+		byte[][] roadNameBytes = new byte[roads][];
+		for (int arc = 0; arc < arcs; arc++) {
+			if (roadNameBytes[graph.road(arc)] == null) {
+				roadNameBytes[graph.road(arc)] = graph.roadName(arc).getBytes(StandardCharsets.UTF_8);
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			SectionWriter out = new SectionWriter(channel);
+			long[] sections = new long[SECTION_COUNT * 2];
+
+			out.start(sections, OFFSETS);
+			int arc = 0;
+			for (int i = 0; i < n; i++) {
+				out.putInt(arc);
+				arc += graph.endArc(order[i]) - graph.firstArc(order[i]);
+			}
+			out.putInt(arc);
+			out.start(sections, TARGETS);
+			for (int i = 0; i < n; i++) {
+				for (int a = graph.firstArc(order[i]); a < graph.endArc(order[i]); a++) {
+					out.putInt(newIds[graph.target(a)]);
+				}
+			}
+			out.start(sections, WEIGHTS);
+			for (int i = 0; i < n; i++) {
+				for (int a = graph.firstArc(order[i]); a < graph.endArc(order[i]); a++) {
+					out.putInt(graph.weight(a));
+				}
+			}
+			out.start(sections, ARC_ROADS);
+			for (int i = 0; i < n; i++) {
+				for (int a = graph.firstArc(order[i]); a < graph.endArc(order[i]); a++) {
+					out.putInt(graph.road(a));
+				}
+			}
+			out.start(sections, TOWN_NAMES);
+			int bytes = 0;
+			for (int i = 0; i < n; i++) {
+				out.putInt(bytes);
+				bytes += names[order[i]].length;
+			}
+			out.putInt(bytes);
+			out.start(sections, ROAD_NAMES);
+			for (int road = 0; road < roads; road++) {
+				out.putInt(bytes);
+				bytes += roadNameBytes[road].length;
+			}
+			out.putInt(bytes);
+			out.start(sections, NAME_BYTES);
+			for (int i = 0; i < n; i++) {
+				out.put(names[order[i]]);
+			}
+			for (byte[] name: roadNameBytes) {
+				out.put(name);
+			}
+			out.finish(sections);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(roads).putInt(arcs).putInt(graph.maxWeight());
+			for (long value: sections) {
+				header.putLong(value);
+			}
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+	}
+
+	/**
+	 * Map an image written by write. Only the header is read; the sections are used in place
+	 * @param file the image file
+	 * @return the image, which can be queried from many threads
+	 * @throws IOException if the file cannot be read or is not an image of this version
+	 */
+	public static GraphImage open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("Not a graph image: " + file);
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a graph image: " + file);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported image version " + version + ": " + file);
+			}
+			int n = header.getInt();
+			int roads = header.getInt();
+			int arcs = header.getInt();
+			int maxWeight = header.getInt();
+			long[] expected = {4L * (n + 1), 4L * arcs, 4L * arcs, 4L * arcs, 4L * (n + 1), 4L * (roads + 1), -1};
+			ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+			for (int s = 0; s < SECTION_COUNT; s++) {
+				long offset = header.getLong();
+				long length = header.getLong();
+				if (n < 0 || roads < 0 || arcs < 0 || offset < HEADER_SIZE || length < 0 || offset + length > size
+						|| expected[s] != -1 && expected[s] != length || length > Integer.MAX_VALUE) {
+					throw new IOException("Graph image is damaged or truncated: " + file);
+				}
+				// A mapping stays valid after its channel is closed
+				sections[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return new GraphImage(n, roads, maxWeight, sections);
+		}
+	}
+
+	/**
+	 * Return the number of towns
+	 */
+	public int townCount() {
+		return townCount;
+	}
+
+	/**
+	 * Return the number of roads
+	 */
+	public int roadCount() {
+		return roadCount;
+	}
+
+	/**
+	 * Return the id of the town with the given name
+	 * @param townName name of the town
+	 * @return the town id, or -1 if the town is not in the image
+	 */
+	public int idOf(String townName) {
+		if (townName == null) {
+			return -1;
+		}
+		byte[] name = townName.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = townCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int c = compareName(middle, name);
+			if (c < 0) {
+				low = middle + 1;
+			}
+			else if (c > 0) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the name of a town
+	 * @param town the town id
+	 */
+	public String townName(int town) {
+		return name(townNames.get(town), townNames.get(town + 1));
+	}
+
+	/**
+	 * Return true if the town is in the image
+	 * @param townName name of the town
+	 */
+	@Override
+	public boolean containsTown(String townName) {
+		return idOf(townName) != -1;
+	}
+
+	/**
+	 * Return a new town with the given name, not linked to the others
+	 * @param townName name of the town
+	 * @return the town, or null if it is not in the image
+	 */
+	@Override
+	public Town getTown(String townName) {
+		return containsTown(townName)? new Town(townName): null;
+	}
+
+	/**
+	 * Return true if a road joins the two towns
+	 * @param town1 name of one town
+	 * @param town2 name of the other town
+	 */
+	@Override
+	public boolean containsRoadConnection(String town1, String town2) {
+		return arcBetween(idOf(town1), idOf(town2)) != -1;
+	}
+
+	/**
+	 * Return the name of the road that joins the two towns
+	 * @param town1 name of one town
+	 * @param town2 name of the other town
+	 * @return the road name, or null if no road joins them
+	 * @throws IllegalArgumentException if a town is not in the image
+	 */
+	@Override
+	public String getRoad(String town1, String town2) {
+		int t1 = idOf(town1);
+		int t2 = idOf(town2);
+		if (t1 == -1 || t2 == -1) {
+			throw new IllegalArgumentException("One or both towns provided are not in the image");
+		}
+		int arc = arcBetween(t1, t2);
+		return arc == -1? null: roadName(arc);
+	}
+
+	/**
+	 * Return the names of all roads, sorted
+	 */
+	@Override
+	public ArrayList<String> allRoads() {
+		ArrayList<String> roads = new ArrayList<>(roadCount);
+		for (int road = 0; road < roadCount; road++) {
+			roads.add(name(roadNames.get(road), roadNames.get(road + 1)));
+		}
+		Collections.sort(roads);
+		return roads;
+	}
+
+	/**
+	 * Return the names of all towns, sorted
+	 */
+	@Override
+	public ArrayList<String> allTowns() {
+		ArrayList<String> towns = new ArrayList<>(townCount);
+		for (int town = 0; town < townCount; town++) {
+			towns.add(townName(town));
+		}
+		Collections.sort(towns); // Byte order and String order differ outside the BMP
+		return towns;
+	}
+
+	/**
+	 * Return the shortest path from town1 to town2, in the same form as TownGraphManager.getPath
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @return paths an arraylist of the shortest paths, empty if there is no path
+	 */
+	@Override
+	public ArrayList<String> getPath(String town1, String town2) {
+		return getRoute(town1, town2).toPaths();
+	}
+
+	/**
+	 * Return the shortest route from town1 to town2 without building its path Strings
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @return the route, Route.NONE if either town is missing or town2 cannot be reached
+	 */
+	public Route getRoute(String town1, String town2) {
+		int source = idOf(town1);
+		int destination = idOf(town2);
+		if (source == -1 || destination == -1) {
+			return Route.NONE;
+		}
+		SearchWorkspace workspace = SearchWorkspace.forThread(townCount, maxWeight);
+		if (search(source, destination, workspace) == CompactGraph.UNREACHABLE) {
+			return Route.NONE;
+		}
+		int count = 0;
+		for (int town = destination; town != source; town = arcSource(workspace.previousArcs[town])) {
+			count++;
+		}
+		String[] towns = new String[count + 1];
+		String[] roads = new String[count];
+		int[] distances = new int[count];
+		towns[count] = townName(destination);
+		for (int town = destination; town != source; ) {
+			int arc = workspace.previousArcs[town];
+			town = arcSource(arc);
+			towns[--count] = townName(town);
+			roads[count] = roadName(arc);
+			distances[count] = weights.get(arc);
+		}
+		return new Route(towns, roads, distances);
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path or a town is missing
+	 */
+	public int distance(String town1, String town2) {
+		int source = idOf(town1);
+		int destination = idOf(town2);
+		if (source == -1 || destination == -1) {
+			return CompactGraph.UNREACHABLE;
+		}
+		return search(source, destination, SearchWorkspace.forThread(townCount, maxWeight));
+	}
+
+	/**
+	 * Not supported, the image is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean addRoad(String town1, String town2, int weight, String roadName) {
+		throw new UnsupportedOperationException("A graph image is read-only");
+	}
+
+	/**
+	 * Not supported, the image is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean addTown(String v) {
+		throw new UnsupportedOperationException("A graph image is read-only");
+	}
+
+	/**
+	 * Not supported, the image is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean deleteRoadConnection(String town1, String town2, String road) {
+		throw new UnsupportedOperationException("A graph image is read-only");
+	}
+
+	/**
+	 * Not supported, the image is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean deleteTown(String v) {
+		throw new UnsupportedOperationException("A graph image is read-only");
+	}
+
+	/**
+	 * Dijkstra over the mapped sections, stopping once the destination is settled
+	 * @param source id of the town where the search starts
+	 * @param destination id of the town to stop at
+	 * @param workspace the labels of this thread
+	 * @return the distance to the destination, CompactGraph.UNREACHABLE if it cannot be reached
+	 */
+	private int search(int source, int destination, SearchWorkspace workspace) {
+		workspace.start();
+		int[] distances = workspace.distances;
+		IntPriorityQueue queue = workspace.queue;
+		workspace.label(source, 0, -1);
+		queue.insertOrDecrease(source, 0);
+		while (queue.isEmpty() == false) {
+			int town = queue.poll();
+			if (town == destination) {
+				break;
+			}
+			int distance = distances[town];
+			int end = offsets.get(town + 1);
+			for (int arc = offsets.get(town); arc < end; arc++) {
+				int t = targets.get(arc);
+				int weight = distance + weights.get(arc);
+				if (workspace.isLabelled(t) == false || weight < distances[t]) {
+					workspace.label(t, weight, arc);
+					queue.insertOrDecrease(t, weight);
+				}
+			}
+		}
+		queue.clear();
+		return workspace.isLabelled(destination)? distances[destination]: CompactGraph.UNREACHABLE;
+	}
+
+	/**
+	 * Return an arc from one town to another
+	 * @param town1 id of the town the arc leaves, or -1
+	 * @param town2 id of the town the arc leads to, or -1
+	 * @return the arc, or -1 if there is none
+	 */
+	private int arcBetween(int town1, int town2) {
+		if (town1 == -1 || town2 == -1) {
+			return -1;
+		}
+		int end = offsets.get(town1 + 1);
+		for (int arc = offsets.get(town1); arc < end; arc++) {
+			if (targets.get(arc) == town2) {
+				return arc;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the town an arc leaves, the last town whose first arc is not after the arc
+	 * @param arc the arc index
+	 */
+	private int arcSource(int arc) {
+		int low = 0;
+		int high = townCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (offsets.get(middle) <= arc) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Return the name of the road an arc belongs to
+	 * @param arc the arc index
+	 */
+	private String roadName(int arc) {
+		int road = arcRoads.get(arc);
+		return name(roadNames.get(road), roadNames.get(road + 1));
+	}
+
+	/**
+	 * Decode a name from the name bytes
+	 * @param start index of its first byte
+	 * @param end index after its last byte
+	 */
+	private String name(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		nameBytes.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compare the name of a town with the given bytes, as unsigned bytes
+	 * @param town the town id
+	 * @param name the UTF-8 bytes to compare with
+	 * @return a negative number, zero or a positive number as the town's name comes before, is
+	 * equal to or comes after the bytes
+	 */
+	private int compareName(int town, byte[] name) {
+		int start = townNames.get(town);
+		int length = townNames.get(town + 1) - start;
+		int common = Math.min(length, name.length);
+		for (int i = 0; i < common; i++) {
+			int c = Byte.compareUnsigned(nameBytes.get(start + i), name[i]);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return length - name.length;
+	}
+
+	/**
+	 * Writes the sections of an image through one buffer, each aligned to 8 bytes after the header
+	 */
+	private static class SectionWriter {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		private long position = HEADER_SIZE; // file offset of the next byte
+		private int section = -1;
+
+		SectionWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * End the current section and start the next one
+		 * @param sections section -> offset then length, filled in as sections end
+		 * @param next the section to start
+		 */
+		void start(long[] sections, int next) throws IOException {
+			finish(sections);
+			while (position % 8 != 0) {
+				put((byte) 0);
+			}
+			section = next;
+			sections[2 * section] = position;
+		}
+
+		/**
+		 * End the current section and write out what is buffered
+		 * @param sections section -> offset then length
+		 */
+		void finish(long[] sections) throws IOException {
+			if (section != -1) {
+				sections[2 * section + 1] = position - sections[2 * section];
+			}
+			flush();
+		}
+
+		void putInt(int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		void put(byte value) throws IOException {
+			if (buffer.hasRemaining() == false) {
+				flush();
+			}
+			buffer.put(value);
+			position++;
+		}
+
+		void put(byte[] bytes) throws IOException {
+			for (int i = 0; i < bytes.length; ) {
+				if (buffer.hasRemaining() == false) {
+					flush();
+				}
+				int count = Math.min(buffer.remaining(), bytes.length - i);
+				buffer.put(bytes, i, count);
+				i += count;
+				position += count;
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			long at = position - buffer.remaining();
+			while (buffer.hasRemaining()) {
+				at += channel.write(buffer, at);
+			}
+			buffer.clear();
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class GraphImage_STUDENT_Test {
+	private TownGraphManager manager;
+	private GraphImage image;
+	private File file;
+	private String[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		manager = new TownGraphManager();
+		town = SampleTowns.addTo(manager); // Town_12 has no road
+		file = File.createTempFile("graph", ".image");
+		file.deleteOnExit();
+		manager.saveImage(file);
+		image = GraphImage.open(file);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		image = null;
+		file.delete();
+		manager = null;
+	}
+
+	@Test
+	public void testReadOnlyCalls() {
+		TownGraphManagerInterface graph = image;
+		assertEquals(manager.allTowns(), graph.allTowns());
+		assertEquals(manager.allRoads(), graph.allRoads());
+		assertTrue(graph.containsTown(town[12]));
+		assertFalse(graph.containsTown("Town_13"));
+		assertEquals("Town_5", graph.getTown("Town_5").getName());
+		assertNull(graph.getTown("Town_13"));
+		assertTrue(graph.containsRoadConnection(town[8], town[4]));
+		assertFalse(graph.containsRoadConnection(town[1], town[4]));
+		assertEquals("Road_9", graph.getRoad(town[10], town[8]));
+		assertNull(graph.getRoad(town[1], town[4]));
+	}
+
+	@Test
+	public void testGetPath() {
+		for (int i = 1; i <= SampleTowns.TOWNS; i++) {
+			for (int j = 1; j <= SampleTowns.TOWNS; j++) {
+				assertEquals(manager.getPath(town[i], town[j]), image.getPath(town[i], town[j]));
+			}
+		}
+		assertTrue(image.getPath(town[1], town[12]).isEmpty());
+		assertEquals(CompactGraph.UNREACHABLE, image.distance(town[1], town[12]));
+		assertEquals(8, image.distance(town[1], town[10]));
+	}
+
+	@Test
+	public void testSameDistancesAsGraph() throws Exception {
+		TownGraphManager big = new TownGraphManager();
+		Random random = new Random(5);
+		for (int i = 0; i < 200; i++) {
+			big.addTown("T" + i);
+		}
+		for (int i = 0; i < 600; i++) {
+			int a = random.nextInt(200);
+			int b = random.nextInt(200);
+			if (a != b) {
+				big.addRoad("T" + a, "T" + b, 1 + random.nextInt(5000), "R" + i);
+			}
+		}
+		big.saveImage(file);
+		GraphImage bigImage = GraphImage.open(file);
+		for (int i = 0; i < 200; i += 13) {
+			for (int j = 0; j < 200; j += 7) {
+				Route expected = big.getRoute("T" + i, "T" + j);
+				Route route = bigImage.getRoute("T" + i, "T" + j);
+				assertEquals(expected.isEmpty(), route.isEmpty());
+				assertEquals(expected.getDistance(), route.getDistance());
+			}
+		}
+	}
+
+	@Test
+	public void testReadOnly() {
+		try {
+			image.addTown("Town_13");
+			fail("An image cannot be changed");
+		}
+		catch (UnsupportedOperationException e) {
+			assertFalse(image.containsTown("Town_13"));
+		}
+	}
+
+	@Test
+	public void testNotAnImage() throws Exception {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(0);
+			raf.writeBytes("Road_1,5;Alpha;Beta\n");
+		}
+		try {
+			GraphImage.open(file);
+			fail("A road file is not an image");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Not a graph image"));
+		}
+	}
+
+}
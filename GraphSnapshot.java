@@ -0,0 +1,332 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A copy of a town graph in a compact binary file, read back without parsing any text. The file
+ * starts with a header of the magic number, the format version, the payload length and the CRC-32
+ * of the payload. The payload is a string table (the town names in name order, then the distinct
+ * road names), the position of each town, and the roads as int ids into the string table with
+ * their distances. All numbers are big-endian, as DataOutputStream writes them.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class GraphSnapshot {
+
+	/** First four bytes of a snapshot file, "TGSN" */
+	public static final int MAGIC = 0x5447534E;
+
+	/** Format version written, and the only one read */
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 24; // magic, version, payload length, checksum
+
+	// Variables
+	private final String[] strings; // string id -> name, town ids first
+	private final int townCount;
+	private final boolean[] hasCoordinates; // town id -> true if the town has a position
+	private final double[] coordinates; // town id -> x then y
+	private final int[] roadEnds; // road id -> source town id then destination town id
+	private final int[] roadWeights; // road id -> distance
+	private final int[] roadNames; // road id -> string id
+
+	/**
+	 * Constructor, copies the towns and roads of the graph
+	 * @param graph the graph to copy
+	 */
+	public GraphSnapshot(GraphInterface<Town, Road> graph) {
+		String[] towns = new String[graph.vertexSet().size()];
+		int id = 0;
+		for (Town t: graph.vertexSet()) {
+			towns[id++] = t.getName();
+		}
+		Arrays.sort(towns);
+		townCount = towns.length;
+		Map<String, Integer> townIds = new HashMap<>(townCount * 2);
+		for (int i = 0; i < townCount; i++) {
+			townIds.put(towns[i], i);
+		}
+		hasCoordinates = new boolean[townCount];
+		coordinates = new double[townCount * 2];
+		for (Town t: graph.vertexSet()) {
+			int town = townIds.get(t.getName());
+			if (t.hasCoordinates()) {
+				hasCoordinates[town] = true;
+				coordinates[2 * town] = t.getX();
+				coordinates[2 * town + 1] = t.getY();
+			}
+		}
+
+		int roads = graph.edgeSet().size();
+		roadEnds = new int[roads * 2];
+		roadWeights = new int[roads];
+		roadNames = new int[roads];
+		Map<String, Integer> nameIds = new HashMap<>();
+		String[] names = Arrays.copyOf(towns, townCount + roads);
+		int stringCount = townCount;
+		int road = 0;
+		for (Road r: graph.edgeSet()) {
+			roadEnds[2 * road] = townIds.get(r.getSource().getName());
+			roadEnds[2 * road + 1] = townIds.get(r.getDestination().getName());
+			roadWeights[road] = r.getWeight();
+			Integer name = nameIds.get(r.getName());
+			if (name == null) {
+				name = stringCount;
+				nameIds.put(r.getName(), name);
+				names[stringCount++] = r.getName();
+			}
+			roadNames[road++] = name;
+		}
+		strings = Arrays.copyOf(names, stringCount);
+	}
+
+	/**
+	 * Constructor over arrays read from a file
+	 */
+	private GraphSnapshot(String[] strings, int townCount, boolean[] hasCoordinates, double[] coordinates,
+			int[] roadEnds, int[] roadWeights, int[] roadNames) {
+		this.strings = strings;
+		this.townCount = townCount;
+		this.hasCoordinates = hasCoordinates;
+		this.coordinates = coordinates;
+		this.roadEnds = roadEnds;
+		this.roadWeights = roadWeights;
+		this.roadNames = roadNames;
+	}
+
+	/**
+	 * Return the number of towns
+	 */
+	public int townCount() {
+		return townCount;
+	}
+
+	/**
+	 * Return the number of roads
+	 */
+	public int roadCount() {
+		return roadWeights.length;
+	}
+
+	/**
+	 * Return the name of a town
+	 * @param town the town id, from 0 to townCount() - 1 in name order
+	 */
+	public String townName(int town) {
+		return strings[town];
+	}
+
+	/**
+	 * Return true if the town has a position
+	 * @param town the town id
+	 */
+	public boolean hasCoordinates(int town) {
+		return hasCoordinates[town];
+	}
+
+	/**
+	 * Return the x coordinate of a town, 0 if it has no position
+	 * @param town the town id
+	 */
+	public double getX(int town) {
+		return coordinates[2 * town];
+	}
+
+	/**
+	 * Return the y coordinate of a town, 0 if it has no position
+	 * @param town the town id
+	 */
+	public double getY(int town) {
+		return coordinates[2 * town + 1];
+	}
+
+	/**
+	 * Return the id of the town a road starts from
+	 * @param road the road id
+	 */
+	public int roadSource(int road) {
+		return roadEnds[2 * road];
+	}
+
+	/**
+	 * Return the id of the town a road leads to
+	 * @param road the road id
+	 */
+	public int roadDestination(int road) {
+		return roadEnds[2 * road + 1];
+	}
+
+	/**
+	 * Return the distance of a road
+	 * @param road the road id
+	 */
+	public int roadWeight(int road) {
+		return roadWeights[road];
+	}
+
+	/**
+	 * Return the name of a road
+	 * @param road the road id
+	 */
+	public String roadName(int road) {
+		return strings[roadNames[road]];
+	}
+
+	/**
+	 * Write the snapshot to a file, replacing what the file held, and force it to disk
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream(new FileOutputStream(file), new CRC32());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16))) {
+			// The payload length and checksum are filled in once the payload is written
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(0);
+			out.writeLong(0);
+			out.flush();
+			checked.getChecksum().reset();
+
+			out.writeInt(strings.length);
+			out.writeInt(townCount);
+			for (String s: strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			for (int town = 0; town < townCount; town++) {
+				out.writeBoolean(hasCoordinates[town]);
+				if (hasCoordinates[town]) {
+					out.writeDouble(coordinates[2 * town]);
+					out.writeDouble(coordinates[2 * town + 1]);
+				}
+			}
+			out.writeInt(roadWeights.length);
+			for (int road = 0; road < roadWeights.length; road++) {
+				out.writeInt(roadEnds[2 * road]);
+				out.writeInt(roadEnds[2 * road + 1]);
+				out.writeInt(roadWeights[road]);
+				out.writeInt(roadNames[road]);
+			}
+		}
+		try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+			header.seek(8);
+			header.writeLong(header.length() - HEADER_SIZE);
+			header.writeLong(checked.getChecksum().getValue());
+			header.getFD().sync();
+		}
+	}
+
+	/**
+	 * Read a snapshot written by write
+	 * @param file the file to read
+	 * @return the snapshot
+	 * @throws IOException if the file cannot be read, is not a snapshot of this version, or is
+	 * damaged
+	 */
+	public static GraphSnapshot read(File file) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(checked, 1 << 16))) {
+			// The header is read unbuffered so that only the payload goes through the checksum
+			DataInputStream header = new DataInputStream(stream);
+			if (header.readInt() != MAGIC) {
+				throw new IOException("Not a graph snapshot: " + file);
+			}
+			int version = header.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			}
+			long payloadLength = header.readLong();
+			long checksum = header.readLong();
+			if (payloadLength != file.length() - HEADER_SIZE) {
+				throw new IOException("Snapshot is truncated: " + file);
+			}
+
+			// Counts are checked against the payload length, so a damaged one cannot ask for a huge array
+			int stringCount = count(in.readInt(), payloadLength / 4);
+			int townCount = count(in.readInt(), stringCount);
+			String[] strings = new String[stringCount];
+			byte[] bytes = new byte[64];
+			for (int i = 0; i < stringCount; i++) {
+				int length = count(in.readInt(), payloadLength);
+				if (length > bytes.length) {
+					bytes = new byte[Math.max(length, bytes.length * 2)];
+				}
+				in.readFully(bytes, 0, length);
+				strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			}
+			boolean[] hasCoordinates = new boolean[townCount];
+			double[] coordinates = new double[townCount * 2];
+			for (int town = 0; town < townCount; town++) {
+				hasCoordinates[town] = in.readBoolean();
+				if (hasCoordinates[town]) {
+					coordinates[2 * town] = in.readDouble();
+					coordinates[2 * town + 1] = in.readDouble();
+				}
+			}
+			int roadCount = count(in.readInt(), payloadLength / 16);
+			int[] roadEnds = new int[roadCount * 2];
+			int[] roadWeights = new int[roadCount];
+			int[] roadNames = new int[roadCount];
+			for (int road = 0; road < roadCount; road++) {
+				roadEnds[2 * road] = id(in.readInt(), townCount);
+				roadEnds[2 * road + 1] = id(in.readInt(), townCount);
+				roadWeights[road] = in.readInt();
+				roadNames[road] = id(in.readInt(), stringCount);
+			}
+			if (in.read() != -1 || checked.getChecksum().getValue() != checksum) {
+				throw new IOException("Snapshot checksum does not match: " + file);
+			}
+			return new GraphSnapshot(strings, townCount, hasCoordinates, coordinates, roadEnds, roadWeights, roadNames);
+		}
+		catch (EOFException e) {
+			throw new IOException("Snapshot is truncated: " + file, e);
+		}
+	}
+
+	/**
+	 * Check a count read from a file
+	 * @param count the count read
+	 * @param limit the largest count the file can hold
+	 * @return the count
+	 * @throws IOException if the count is negative or over the limit
+	 */
+	private static int count(int count, long limit) throws IOException {
+		if (count < 0 || count > limit) {
+			throw new IOException("Snapshot is damaged: bad count " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Check an id read from a file
+	 * @param id the id read
+	 * @param limit the number of ids
+	 * @return the id
+	 * @throws IOException if the id is out of range
+	 */
+	private static int id(int id, int limit) throws IOException {
+		if (id < 0 || id >= limit) {
+			throw new IOException("Snapshot is damaged: bad id " + id);
+		}
+		return id;
+	}
+
+}
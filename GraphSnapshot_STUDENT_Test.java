@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class GraphSnapshot_STUDENT_Test {
+	private TownGraphManager manager;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		manager = new TownGraphManager();
+		for (int i = 1; i < 7; i++) {
+			manager.addTown("Town_" + i);
+		}
+		manager.addRoad("Town_1", "Town_2", 2, "Julia Lane");
+		manager.addRoad("Town_2", "Town_4", 3, "West Highway");
+		manager.addRoad("Town_4", "Town_6", 4, "Beltway");
+		manager.addRoad("Town_1", "Town_5", 6, "Beltway");
+		manager.addTown("Z\u00fcrich");
+		manager.setTownCoordinates("Town_4", 1.5, -2.25);
+		file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+		manager = null;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		manager.saveSnapshot(file);
+		TownGraphManager loaded = new TownGraphManager();
+		loaded.loadSnapshot(file);
+		assertEquals(manager.allTowns(), loaded.allTowns());
+		assertEquals(manager.allRoads(), loaded.allRoads());
+		assertEquals(manager.getPath("Town_1", "Town_6"), loaded.getPath("Town_1", "Town_6"));
+		assertTrue(loaded.getTown("Town_4").hasCoordinates());
+		assertEquals(-2.25, loaded.getTown("Town_4").getY(), 0.0);
+		assertFalse(loaded.getTown("Town_5").hasCoordinates());
+		assertTrue(loaded.containsTown("Z\u00fcrich"));
+	}
+
+	@Test
+	public void testSharedRoadNames() throws Exception {
+		manager.saveSnapshot(file);
+		GraphSnapshot snapshot = GraphSnapshot.read(file);
+		assertEquals(7, snapshot.townCount());
+		assertEquals(4, snapshot.roadCount());
+		assertEquals("Town_1", snapshot.townName(0));
+	}
+
+	@Test
+	public void testDamagedFile() throws Exception {
+		manager.saveSnapshot(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length() - 3);
+			raf.write(raf.read() ^ 1);
+		}
+		TownGraphManager loaded = new TownGraphManager();
+		try {
+			loaded.loadSnapshot(file);
+			fail("A damaged snapshot should be rejected");
+		}
+		catch (IOException e) {
+			assertTrue(loaded.allTowns().isEmpty());
+		}
+	}
+
+	@Test
+	public void testNotASnapshot() throws Exception {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.writeBytes("Road_1,5;Alpha;Beta\n");
+		}
+		try {
+			GraphSnapshot.read(file);
+			fail("A road file is not a snapshot");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Not a graph snapshot"));
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Set;
 
 import org.junit.After;
@@ -118,6 +119,16 @@ public class Graph_STUDENT_Test {
 		assertEquals(false, graph.containsVertex(town[2]));
 	}
 
+	@Test
+	public void testRemoveVertexRemovesRoads() {
+		assertEquals(true, graph.containsEdge(town[1], town[2]));
+		graph.removeVertex(town[2]);
+		assertEquals(false, graph.containsEdge(town[1], town[2]));
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+		assertEquals(2, graph.edgesOf(town[1]).size());
+		assertEquals(10, graph.edgeSet().size());
+	}
+
 	@Test
 	public void testVertexSet() {
 		Set<Town> roads = graph.vertexSet();
@@ -214,4 +225,92 @@ public class Graph_STUDENT_Test {
 			  fail("Town names are not valid");
 
 	  }
+
+	  @Test
+	  public void testTown_6ToTown_1() {
+		  ArrayList<String> path = graph.shortestPath(town[6], town[1]);
+		  assertEquals(5, path.size());
+		  assertEquals("Town_6 via Road_7 to Town_9 3 mi", path.get(0).trim());
+		  assertEquals("Town_9 via Road_8 to Town_10 4 mi", path.get(1).trim());
+		  assertEquals("Town_10 via Road_9 to Town_8 2 mi", path.get(2).trim());
+		  assertEquals("Town_8 via Road_5 to Town_3 2 mi", path.get(3).trim());
+		  assertEquals("Town_3 via Road_2 to Town_1 4 mi", path.get(4).trim());
+	  }
+
+	  @Test
+	  public void testRepeatedShortestPath() {
+		  assertEquals(2, graph.shortestPath(town[1], town[11]).size());
+		  assertEquals(2, graph.shortestPath(town[1], town[11]).size());
+		  assertEquals(3, graph.shortestPath(town[4], town[11]).size());
+	  }
+
+	  @Test
+	  public void testConcurrentShortestPath() throws Exception {
+		  Thread[] threads = new Thread[4];
+		  boolean[] correct = new boolean[threads.length];
+		  for (int i = 0; i < threads.length; i++) {
+			  int index = i;
+			  threads[i] = new Thread(() -> {
+				  boolean ok = true;
+				  for (int j = 0; j < 200; j++) {
+					  ok &= graph.shortestPath(town[1], town[10]).size() == 3;
+					  ok &= graph.shortestPath(town[6], town[1]).size() == 5;
+				  }
+				  correct[index] = ok;
+			  });
+			  threads[i].start();
+		  }
+		  for (int i = 0; i < threads.length; i++) {
+			  threads[i].join();
+			  assertTrue(correct[i]);
+		  }
+	  }
+
+	  @Test
+	  public void testBidirectionalShortestPath() {
+		  Graph g = (Graph) graph;
+		  for (int i = 1; i < 12; i++) {
+			  for (int j = 1; j < 12; j++) {
+				  assertEquals(g.shortestPath(town[i], town[j]), 
+						  g.shortestPath(town[i], town[j], SearchMode.BIDIRECTIONAL));
+			  }
+		  }
+		  Town lonely = new Town("Town_12");
+		  g.addVertex(lonely);
+		  assertTrue(g.shortestPath(town[1], lonely, SearchMode.BIDIRECTIONAL).isEmpty());
+	  }
+
+	  @Test
+	  public void testAStarShortestPath() {
+		  Graph g = (Graph) graph;
+		  // Without coordinates A* falls back to Dijkstra
+		  assertEquals(g.shortestPath(town[1], town[6]), g.shortestPath(town[1], town[6], SearchMode.ASTAR));
+		  for (int i = 1; i < 12; i++) {
+			  g.setCoordinates(town[i], i % 4, i / 4);
+		  }
+		  for (int i = 1; i < 12; i++) {
+			  for (int j = 1; j < 12; j++) {
+				  assertEquals(g.shortestPath(town[i], town[j]), g.shortestPath(town[i], town[j], SearchMode.ASTAR));
+			  }
+		  }
+	  }
+
+	@Test
+	public void testReachableWithin() {
+		Graph g = (Graph) graph;
+		assertEquals(Arrays.asList(town[1], town[2], town[3], town[7]), 
+				new ArrayList<>(g.reachableWithin(town[1], 5).keySet()));
+		LinkedHashMap<Town, Integer> reached = g.reachableWithin(town[1], 8);
+		assertEquals(8, reached.size());
+		assertEquals(Integer.valueOf(8), reached.get(town[11]));
+		assertEquals(Integer.valueOf(6), reached.get(town[5]));
+		assertFalse(reached.containsKey(town[9]));
+		int last = 0;
+		for (int distance: reached.values()) {
+			assertTrue(distance >= last);
+			last = distance;
+		}
+		assertEquals(1, g.reachableWithin(town[1], 0).size());
+		assertTrue(g.reachableWithin(town[1], -1).isEmpty());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int items (town ids) keyed by an int distance, with decrease-key.
+ * Items must be in the range 0 to capacity - 1. Nothing is allocated once the heap is built,
+ * so a heap can be cleared and reused from one search to the next.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class IndexedMinHeap implements IntPriorityQueue {
+
+	// Variables
+	private final int[] heap; // heap position -> item
+	private final int[] positions; // item -> heap position, -1 when not in the heap
+	private final int[] keys; // item -> key
+	private int size;
+
+	/**
+	 * Constructor
+	 * @param capacity the number of distinct items the heap can hold
+	 */
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Return true if the heap holds no items
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Return the number of items in the heap
+	 * @return size the number of items
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the number of distinct items the heap can hold
+	 * @return the capacity of the heap
+	 */
+	public int capacity() {
+		return heap.length;
+	}
+
+	/**
+	 * Return true if the item is waiting in the heap
+	 * @param item the item to look for
+	 */
+	@Override
+	public boolean contains(int item) {
+		return positions[item] != -1;
+	}
+
+	/**
+	 * Add the item with the given key, or lower its key if it is already in the heap
+	 * and the new key is smaller
+	 * @param item the item to add
+	 * @param key the key of the item
+	 * @return true if the item was added or its key lowered, false otherwise
+	 */
+	@Override
+	public boolean insertOrDecrease(int item, int key) {
+		int position = positions[item];
+		if (position == -1) {
+			keys[item] = key;
+			heap[size] = item;
+			positions[item] = size;
+			siftUp(size++);
+			return true;
+		}
+		if (key < keys[item]) {
+			keys[item] = key;
+			siftUp(position);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add the item with the given key, or move it to the new key whether it is smaller or larger
+	 * @param item the item to add
+	 * @param key the key of the item
+	 */
+	public void update(int item, int key) {
+		int position = positions[item];
+		if (position == -1) {
+			insertOrDecrease(item, key);
+			return;
+		}
+		keys[item] = key;
+		siftUp(position);
+		siftDown(positions[item]);
+	}
+
+	/**
+	 * Return the key of the item at the top of the heap
+	 * @return the smallest key in the heap
+	 */
+	public int peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Remove and return the item with the smallest key
+	 * @return item the item with the smallest key
+	 */
+	@Override
+	public int poll() {
+		int item = heap[0];
+		positions[item] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return item;
+	}
+
+	/**
+	 * Remove every item, in time proportional to the number of items left in the heap
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Move the item at the given position up until its parent is not larger
+	 * @param position position of the item in the heap
+	 */
+	private void siftUp(int position) {
+		int item = heap[position];
+		int key = keys[item];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			int parentItem = heap[parent];
+			if (keys[parentItem] <= key) {
+				break;
+			}
+			heap[position] = parentItem;
+			positions[parentItem] = position;
+			position = parent;
+		}
+		heap[position] = item;
+		positions[item] = position;
+	}
+
+	/**
+	 * Move the item at the given position down until its children are not smaller
+	 * @param position position of the item in the heap
+	 */
+	private void siftDown(int position) {
+		int item = heap[position];
+		int key = keys[item];
+		int half = size >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			int childItem = heap[child];
+			if (child + 1 < size && keys[heap[child + 1]] < keys[childItem]) {
+				child++;
+				childItem = heap[child];
+			}
+			if (key <= keys[childItem]) {
+				break;
+			}
+			heap[position] = childItem;
+			positions[childItem] = position;
+			position = child;
+		}
+		heap[position] = item;
+		positions[item] = position;
+	}
+
+}
@@ -0,0 +1,45 @@
+/**
+ * A priority queue of int items (town ids) keyed by an int distance, with decrease-key, as used by
+ * the Dijkstra searches over a CompactGraph. Items must be in the range 0 to capacity - 1.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public interface IntPriorityQueue {
+
+	/**
+	 * Return true if the queue holds no items
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Return the number of items in the queue
+	 */
+	public int size();
+
+	/**
+	 * Return true if the item is waiting in the queue
+	 * @param item the item to look for
+	 */
+	public boolean contains(int item);
+
+	/**
+	 * Add the item with the given key, or lower its key if it is already in the queue
+	 * and the new key is smaller
+	 * @param item the item to add
+	 * @param key the key of the item
+	 * @return true if the item was added or its key lowered, false otherwise
+	 */
+	public boolean insertOrDecrease(int item, int key);
+
+	/**
+	 * Remove and return the item with the smallest key
+	 * @return item the item with the smallest key
+	 */
+	public int poll();
+
+	/**
+	 * Remove every item, so the queue can be used for another search
+	 */
+	public void clear();
+}
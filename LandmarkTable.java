@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * ALT search (A*, Landmarks and the Triangle inequality) over a snapshot of the town graph. A few
+ * landmark towns are picked far apart from each other and the distance from each landmark to every
+ * town is stored. Since roads go both ways, for any landmark L the triangle inequality gives
+ * |d(L, t) - d(L, v)| as a lower bound on the distance from v to t. The largest of these bounds is a
+ * consistent A* heuristic, and it needs no coordinates.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class LandmarkTable {
+
+	/** Number of landmarks used when none is given */
+	public static final int DEFAULT_LANDMARKS = 8;
+
+	// Variables
+	private final CompactGraph graph;
+	private final int[] landmarks; // landmark index -> town id
+	private final int[][] distances; // landmark index -> town id -> distance from the landmark
+
+	/**
+	 * Constructor with the default number of landmarks
+	 * @param graph the snapshot to search
+	 */
+	public LandmarkTable(CompactGraph graph) {
+		this(graph, DEFAULT_LANDMARKS);
+	}
+
+	/**
+	 * Constructor, picks the landmarks farthest-first and stores their distances
+	 * @param graph the snapshot to search
+	 * @param count the number of landmarks to pick
+	 */
+	public LandmarkTable(CompactGraph graph, int count) {
+		this.graph = graph;
+		int n = graph.townCount();
+		count = Math.min(count, n);
+		landmarks = new int[count];
+		distances = new int[count][n];
+		int[] previousArcs = new int[n];
+		// closest[v] is the distance from v to the nearest landmark picked so far
+		int[] closest = new int[n];
+		Arrays.fill(closest, CompactGraph.UNREACHABLE);
+
+		int next = 0;
+		for (int i = 0; i < count; i++) {
+			landmarks[i] = next;
+			graph.search(next, -1, distances[i], previousArcs);
+			// The next landmark is the town farthest from all picked so far; a town no landmark
+			// reaches counts as farthest, so every part of a disconnected graph gets one
+			long farthest = -1;
+			for (int v = 0; v < n; v++) {
+				closest[v] = Math.min(closest[v], distances[i][v]);
+				if (closest[v] > farthest) {
+					farthest = closest[v];
+					next = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the snapshot the table was built over
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the ids of the landmark towns
+	 */
+	public int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	/**
+	 * Return a lower bound on the distance between two towns
+	 * @param town id of one town
+	 * @param target id of the other town
+	 * @return the largest landmark bound, 0 if no landmark reaches both towns
+	 */
+	public int lowerBound(int town, int target) {
+		int bound = 0;
+		for (int[] d: distances) {
+			if (d[town] != CompactGraph.UNREACHABLE && d[target] != CompactGraph.UNREACHABLE) {
+				bound = Math.max(bound, Math.abs(d[target] - d[town]));
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Return the shortest distance between two towns
+	 * @param source id of the town where the path starts
+	 * @param destination id of the town where the path ends
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(int source, int destination) {
+		return search(source, destination, workspace());
+	}
+
+	/**
+	 * Find the shortest path from town A to town B, in the same form as Graph.shortestPath
+	 * @param sourceVertex name of town A where the path starts
+	 * @param destinationVertex name of town B where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if town B cannot be reached
+	 */
+	public ArrayList<String> shortestPath(String sourceVertex, String destinationVertex) {
+		return shortestRoute(sourceVertex, destinationVertex).toPaths();
+	}
+
+	/**
+	 * Find the shortest route from town A to town B
+	 * @param sourceVertex name of town A where the route starts
+	 * @param destinationVertex name of town B where the route ends
+	 * @return the route, Route.NONE if town B cannot be reached
+	 */
+	public Route shortestRoute(String sourceVertex, String destinationVertex) {
+		int source = graph.idOf(sourceVertex);
+		int destination = graph.idOf(destinationVertex);
+		if (source == -1 || destination == -1) {
+			return Route.NONE;
+		}
+		SearchWorkspace workspace = workspace();
+		if (search(source, destination, workspace) == CompactGraph.UNREACHABLE) {
+			return Route.NONE;
+		}
+		return graph.route(source, destination, workspace.previousArcs);
+	}
+
+	/**
+	 * Return the labels and queue of the calling thread, shared with its Dijkstra queries
+	 * @return the workspace, fitted to the snapshot
+	 */
+	private SearchWorkspace workspace() {
+		// The heuristic changes by at most a road's distance along it, so a queued key is at most
+		// twice the longest road past the key last polled
+		int maxWeight = graph.maxWeight();
+		int maxStep = maxWeight < 0 || maxWeight > CompactGraph.BUCKET_QUEUE_LIMIT? -1: 2 * maxWeight;
+		return SearchWorkspace.forThread(graph.townCount(), maxStep);
+	}
+
+	/**
+	 * A* from the source, ordering the queue by distance so far plus the landmark lower bound. The
+	 * labels are stamped like those of CompactGraph's Dijkstra, so a query costs the towns it
+	 * reaches and not the size of the graph
+	 * @param source id of the town where the search starts
+	 * @param destination id of the town to stop at
+	 * @param workspace the labels of this thread, whose previous arcs hold the path found
+	 * @return the distance to the destination, UNREACHABLE if it cannot be reached
+	 */
+	private int search(int source, int destination, SearchWorkspace workspace) {
+		// Landmarks that reach one town but not the other prove there is no path
+		for (int[] d: this.distances) {
+			if ((d[source] == CompactGraph.UNREACHABLE) != (d[destination] == CompactGraph.UNREACHABLE)) {
+				return CompactGraph.UNREACHABLE;
+			}
+		}
+		workspace.start();
+		int[] distances = workspace.distances;
+		IntPriorityQueue queue = workspace.queue;
+		workspace.label(source, 0, -1);
+		queue.insertOrDecrease(source, lowerBound(source, destination));
+		while (queue.isEmpty() == false) {
+			int town = queue.poll();
+			if (town == destination) {
+				break;
+			}
+			int distance = distances[town];
+			for (int arc = graph.firstArc(town); arc < graph.endArc(town); arc++) {
+				int t = graph.target(arc);
+				int weight = distance + graph.weight(arc);
+				if (workspace.isLabelled(t) == false || weight < distances[t]) {
+					workspace.label(t, weight, arc);
+					queue.insertOrDecrease(t, weight + lowerBound(t, destination));
+				}
+			}
+		}
+		queue.clear();
+		return workspace.isLabelled(destination)? distances[destination]: CompactGraph.UNREACHABLE;
+	}
+
+}
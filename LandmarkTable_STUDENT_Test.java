@@ -0,0 +1,72 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class LandmarkTable_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSameAsDijkstra() {
+		for (int i = 1; i < 13; i++) {
+			for (int j = 1; j < 13; j++) {
+				if (i != j) {
+					assertEquals(graph.shortestPath(town[i], town[j]), 
+							graph.shortestPath(town[i], town[j], SearchMode.ALT));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLowerBound() {
+		LandmarkTable table = new LandmarkTable(graph.snapshot(), 3);
+		CompactGraph compact = table.getGraph();
+		assertEquals(3, table.getLandmarks().length);
+		for (int i = 0; i < compact.townCount(); i++) {
+			for (int j = 0; j < compact.townCount(); j++) {
+				int distance = compact.distance(i, j);
+				assertEquals(distance, table.distance(i, j));
+				assertTrue(table.lowerBound(i, j) <= distance);
+			}
+		}
+	}
+
+	@Test
+	public void testLongRoads() {
+		// Roads too long for the bucket queue, with queries sharing the thread's labels in turn
+		graph.getEdge(town[1], town[5]).setWeight(CompactGraph.BUCKET_QUEUE_LIMIT);
+		graph.getEdge(town[9], town[10]).setWeight(3 * CompactGraph.BUCKET_QUEUE_LIMIT);
+		LandmarkTable table = graph.landmarkTable();
+		CompactGraph compact = table.getGraph();
+		for (int i = 0; i < compact.townCount(); i++) {
+			for (int j = 0; j < compact.townCount(); j++) {
+				assertEquals(compact.distance(i, j), table.distance(i, j));
+			}
+		}
+		assertEquals(graph.shortestPath(town[1], town[6]), graph.shortestPath(town[1], town[6], SearchMode.ALT));
+	}
+
+	@Test
+	public void testRebuiltAfterChange() {
+		LandmarkTable table = graph.landmarkTable();
+		assertSame(table, graph.landmarkTable());
+		graph.removeEdge(town[2], town[11], 6, "Road_12");
+		assertNotSame(table, graph.landmarkTable());
+		assertEquals(4, graph.shortestPath(town[1], town[11], SearchMode.ALT).size());
+	}
+}
@@ -0,0 +1,222 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a road file on many cores. The file is memory-mapped, cut into chunks that end on a line
+ * break, and each chunk is parsed by its own RoadFileParser on a fork-join pool into a batch of
+ * roads. The batches are then handed to a single handler in file order, so the graph is built by
+ * one thread and the result is the same as reading the file line by line. A chunk cannot know
+ * whether it starts inside the coordinates section, so it is parsed as roads; the chunks after the
+ * one holding the "[coordinates]" line are parsed again as positions, which is cheap since that
+ * section ends the file.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class MappedRoadFileLoader {
+
+	/** Usual size of a chunk, in bytes */
+	public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+	// Variables
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Constructor, parses on the common fork-join pool with the default chunk size
+	 */
+	public MappedRoadFileLoader() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 * @param pool the threads to parse with
+	 * @param chunkSize the usual size of a chunk in bytes; a chunk runs on to the end of its last line
+	 * @throws IllegalArgumentException if chunkSize is less than 1
+	 */
+	public MappedRoadFileLoader(ForkJoinPool pool, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+		}
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Read every road and town position of a file, handing them to the handler in file order once
+	 * the whole file is parsed. Nothing is handed on if a line is malformed
+	 * @param file the road file, in UTF-8
+	 * @param handler receives what is read, from the calling thread
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line has too few fields
+	 * @throws NumberFormatException if a distance or coordinate is not a number
+	 */
+	public void load(File file, RoadFileParser.Handler handler) throws IOException {
+		MappedByteBuffer[] chunks;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel);
+			chunks = new MappedByteBuffer[bounds.length - 1];
+			for (int i = 0; i < chunks.length; i++) {
+				// A mapping stays valid after its channel is closed
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+			}
+		}
+
+		RoadBatch[] batches = parse(chunks, false, 0);
+		int section = -1; // first chunk holding the coordinates line
+		for (int i = 0; i < batches.length && section == -1; i++) {
+			if (batches[i].isCoordinates) {
+				section = i;
+			}
+		}
+		if (section != -1 && section + 1 < batches.length) {
+			RoadBatch[] positions = parse(chunks, true, section + 1);
+			System.arraycopy(positions, section + 1, batches, section + 1, positions.length - section - 1);
+		}
+		for (RoadBatch batch: batches) {
+			if (batch.error != null) {
+				throw batch.error; // The first bad line in file order, before anything is handed on
+			}
+		}
+		for (RoadBatch batch: batches) {
+			batch.replay(handler);
+		}
+	}
+
+	/**
+	 * Return the offsets the chunks start at, each just after a line break, with the file size last
+	 * @param channel the open file
+	 * @return bounds chunk i is from bounds[i] to bounds[i + 1]
+	 * @throws IOException if the file cannot be read
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long[] bounds = new long[(int) Math.min(Integer.MAX_VALUE - 1, size / chunkSize + 1) + 1];
+		int count = 1; // bounds[0] is 0
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		long position = chunkSize;
+		while (position < size) {
+			// Move on to the byte after the next line break
+			long end = -1;
+			while (end == -1 && position < size) {
+				probe.clear();
+				int read = channel.read(probe, position);
+				for (int i = 0; i < read && end == -1; i++) {
+					byte b = probe.get(i);
+					if (b == '\n' || b == '\r') {
+						end = position + i + 1;
+					}
+				}
+				position += Math.max(read, 0);
+			}
+			if (end == -1 || end >= size) {
+				break;
+			}
+			bounds[count++] = end;
+			position = end + chunkSize;
+		}
+		bounds[count++] = size;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * Parse chunks in parallel on the pool
+	 * @param chunks the mapped chunks of the file
+	 * @param isCoordinates true to parse the chunks as town positions
+	 * @param from index of the first chunk to parse
+	 * @return batches chunk index -> what the chunk holds, null before from
+	 */
+	private RoadBatch[] parse(MappedByteBuffer[] chunks, boolean isCoordinates, int from) {
+		RoadBatch[] batches = new RoadBatch[chunks.length];
+		try {
+			// Parallel streams started from a task of the pool run on that pool
+			pool.submit(() -> IntStream.range(from, chunks.length).parallel().forEach(i -> {
+				RoadBatch batch = new RoadBatch();
+				RoadFileParser parser = new RoadFileParser(batch);
+				parser.setCoordinates(isCoordinates);
+				try {
+					parser.parse(chunks[i].duplicate());
+				}
+				catch (IllegalArgumentException e) {
+					batch.error = e; // Kept, the chunk may be parsed again as positions
+				}
+				batch.isCoordinates = parser.isCoordinates();
+				batches[i] = batch;
+			})).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Load interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Load failed", e.getCause());
+		}
+		return batches;
+	}
+
+	/**
+	 * The roads and positions of one chunk, in file order, kept in arrays until they are replayed
+	 */
+	private static class RoadBatch implements RoadFileParser.Handler {
+		private String[] roads = new String[64];
+		private int[] miles = new int[64];
+		private String[] towns1 = new String[64];
+		private String[] towns2 = new String[64];
+		private int roadCount;
+		private final List<String> positionTowns = new ArrayList<>();
+		private double[] positions = new double[16]; // x then y of each town in positionTowns
+		private boolean isCoordinates; // true if the chunk ends in the coordinates section
+		private IllegalArgumentException error; // the bad line that stopped the parse, if any
+
+		@Override
+		public void road(String road, int distance, String town1, String town2) {
+			if (roadCount == roads.length) {
+				int capacity = roadCount * 2;
+				roads = Arrays.copyOf(roads, capacity);
+				miles = Arrays.copyOf(miles, capacity);
+				towns1 = Arrays.copyOf(towns1, capacity);
+				towns2 = Arrays.copyOf(towns2, capacity);
+			}
+			roads[roadCount] = road;
+			miles[roadCount] = distance;
+			towns1[roadCount] = town1;
+			towns2[roadCount++] = town2;
+		}
+
+		@Override
+		public void coordinates(String town, double x, double y) {
+			int i = positionTowns.size() * 2;
+			if (i + 2 > positions.length) {
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			}
+			positions[i] = x;
+			positions[i + 1] = y;
+			positionTowns.add(town);
+		}
+
+		/**
+		 * Hand the roads, then the positions, to another handler
+		 * @param handler receives the contents of the batch
+		 */
+		void replay(RoadFileParser.Handler handler) {
+			for (int i = 0; i < roadCount; i++) {
+				handler.road(roads[i], miles[i], towns1[i], towns2[i]);
+			}
+			for (int i = 0; i < positionTowns.size(); i++) {
+				handler.coordinates(positionTowns.get(i), positions[2 * i], positions[2 * i + 1]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class MappedRoadFileLoader_STUDENT_Test {
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		PrintWriter writer = new PrintWriter(file);
+		for (int i = 1; i < 300; i++) {
+			writer.print("Road_" + i + "," + (i % 17 + 1) + ";Town_" + i + ";Town_" + (i * 7 % 300) + "\r\n");
+		}
+		writer.println(TownGraphManager.COORDINATES_SECTION);
+		for (int i = 1; i < 300; i++) {
+			writer.println("Town_" + i + ";" + i + ";" + (i % 10));
+		}
+		writer.close();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+		file = null;
+	}
+
+	@Test
+	public void testSameAsSequentialLoad() throws Exception {
+		TownGraphManager expected = new TownGraphManager();
+		expected.populateTownGraph(file);
+		TownGraphManager manager = new TownGraphManager();
+		manager.populateTownGraphParallel(file);
+		assertEquals(expected.allTowns(), manager.allTowns());
+		assertEquals(expected.allRoads(), manager.allRoads());
+		assertEquals(expected.getPath("Town_1", "Town_250"), manager.getPath("Town_1", "Town_250"));
+		assertEquals(6.0, manager.getTown("Town_6").getX(), 0.0);
+	}
+
+	@Test
+	public void testSmallChunks() throws Exception {
+		// Chunks of a few bytes, so lines and the coordinates line fall across many of them
+		ArrayList<String> lines = new ArrayList<>();
+		new MappedRoadFileLoader(new ForkJoinPool(4), 7).load(file, new RoadFileParser.Handler() {
+			@Override
+			public void road(String road, int miles, String town1, String town2) {
+				lines.add(road + "," + miles + ";" + town1 + ";" + town2);
+			}
+
+			@Override
+			public void coordinates(String town, double x, double y) {
+				lines.add(town + ";" + (int) x + ";" + (int) y);
+			}
+		});
+		assertEquals(598, lines.size());
+		assertEquals("Road_1,2;Town_1;Town_7", lines.get(0));
+		assertEquals("Road_299,11;Town_299;Town_293", lines.get(298));
+		assertEquals("Town_1;1;1", lines.get(299));
+		assertEquals("Town_299;299;9", lines.get(597));
+	}
+
+	@Test
+	public void testMalformedLineChangesNothing() throws Exception {
+		PrintWriter writer = new PrintWriter(file);
+		writer.println("Road_1,5;Alpha;Beta");
+		writer.println("Road_2,x;Beta;Gamma");
+		writer.close();
+		TownGraphManager manager = new TownGraphManager();
+		try {
+			manager.populateTownGraphParallel(file);
+			fail("A bad distance should be rejected");
+		}
+		catch (NumberFormatException e) {
+			assertTrue(manager.allTowns().isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,436 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a TownGraphManager, so a graph can be rebuilt
+ * after a crash from its last snapshot plus the journal. Each change is one record: its length,
+ * the CRC-32 of its body, then the body (a type byte followed by the names and numbers of the
+ * change). Records are gathered in memory and written and forced to disk together (group commit)
+ * once groupSize records are waiting or the first of them has waited maxDelay milliseconds, which a
+ * background thread checks when no further change comes; a change is durable once sync returns or
+ * the group it belongs to is forced. A crash can leave a torn last record, which replay ignores and
+ * cuts off.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class MutationJournal implements AutoCloseable {
+
+	// Record types
+	private static final byte ADD_TOWN = 1;
+	private static final byte ADD_ROAD = 2;
+	private static final byte DELETE_ROAD = 3;
+	private static final byte DELETE_TOWN = 4;
+	private static final byte SET_ROAD_WEIGHT = 5;
+	private static final byte SET_COORDINATES = 6;
+
+	private static final int RECORD_HEADER = 8; // body length and checksum
+
+	// Variables
+	private final FileChannel channel;
+	private final int groupSize;
+	private final long maxDelay; // in nanoseconds
+	private final ScheduledExecutorService flusher; // forces a group that waited too long, null if none can
+	private ByteBuffer pending = ByteBuffer.allocate(1 << 12); // records not yet written
+	private int pendingCount;
+	private long firstPending; // System.nanoTime() when the first waiting record was added
+	private int recordStart; // position in pending of the record being built
+	private IOException failure; // a failed force of the flusher, reported by every later call
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Constructor, opens the journal for appending, creating it if needed. A torn record left at
+	 * the end by a crash is cut off first, so call replay before this to recover its changes
+	 * @param file the journal file
+	 * @param groupSize the number of records written and forced together, 1 to force every change
+	 * @param maxDelay the longest time in milliseconds a record waits to be forced, 0 to force every
+	 * change
+	 * @throws IOException if the file cannot be opened
+	 * @throws IllegalArgumentException if groupSize is less than 1 or maxDelay is negative
+	 */
+	public MutationJournal(File file, int groupSize, long maxDelay) throws IOException {
+		if (groupSize < 1) {
+			throw new IllegalArgumentException("groupSize must be at least 1: " + groupSize);
+		}
+		if (maxDelay < 0) {
+			throw new IllegalArgumentException("maxDelay must not be negative: " + maxDelay);
+		}
+		this.groupSize = groupSize;
+		this.maxDelay = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+		long valid = file.exists()? validLength(file): 0;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(valid);
+		channel.position(valid);
+		if (groupSize > 1 && maxDelay > 0) {
+			flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "journal-flusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		else {
+			flusher = null; // Every record is forced as it is added
+		}
+	}
+
+	/**
+	 * Record that a town was added
+	 * @param town name of the town
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void addTown(String town) throws IOException {
+		start(ADD_TOWN);
+		putString(town);
+		end();
+	}
+
+	/**
+	 * Record that a road was added
+	 * @param town1 the source town
+	 * @param town2 the destination town
+	 * @param weight distance of the road
+	 * @param roadName name of the road
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void addRoad(String town1, String town2, int weight, String roadName) throws IOException {
+		start(ADD_ROAD);
+		putString(town1);
+		putString(town2);
+		putInt(weight);
+		putString(roadName);
+		end();
+	}
+
+	/**
+	 * Record that a road was deleted
+	 * @param town1 the source town
+	 * @param town2 the destination town
+	 * @param roadName name of the road
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void deleteRoad(String town1, String town2, String roadName) throws IOException {
+		start(DELETE_ROAD);
+		putString(town1);
+		putString(town2);
+		putString(roadName);
+		end();
+	}
+
+	/**
+	 * Record that a town was deleted
+	 * @param town name of the town
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void deleteTown(String town) throws IOException {
+		start(DELETE_TOWN);
+		putString(town);
+		end();
+	}
+
+	/**
+	 * Record that the distance of a road changed
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 * @param weight the new distance
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void setRoadWeight(String town1, String town2, int weight) throws IOException {
+		start(SET_ROAD_WEIGHT);
+		putString(town1);
+		putString(town2);
+		putInt(weight);
+		end();
+	}
+
+	/**
+	 * Record that a town was placed
+	 * @param town name of the town
+	 * @param x the x coordinate of the town
+	 * @param y the y coordinate of the town
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void setCoordinates(String town, double x, double y) throws IOException {
+		start(SET_COORDINATES);
+		putString(town);
+		putDouble(x);
+		putDouble(y);
+		end();
+	}
+
+	/**
+	 * Write the waiting records and force them to disk
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void sync() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+		if (pending.position() > 0) {
+			pending.flip();
+			while (pending.hasRemaining()) {
+				channel.write(pending);
+			}
+			pending.clear();
+			channel.force(false);
+		}
+		pendingCount = 0;
+	}
+
+	/**
+	 * Force the waiting records if the first of them has waited maxDelay, run by the flusher. A
+	 * check made for a group that was already forced finds the next group too young and leaves it
+	 * to its own check
+	 */
+	private synchronized void flushIfDue() {
+		if (pendingCount > 0 && failure == null && channel.isOpen() && System.nanoTime() - firstPending >= maxDelay) {
+			try {
+				sync();
+			}
+			catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Drop every record, once a snapshot holds all the changes they describe
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized void reset() throws IOException {
+		pending.clear();
+		pendingCount = 0;
+		channel.truncate(0);
+		channel.position(0);
+		channel.force(false);
+	}
+
+	/**
+	 * Force the waiting records to disk and close the journal
+	 * @throws IOException if the journal cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (flusher != null) {
+			flusher.shutdownNow();
+		}
+		try {
+			sync();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Apply the changes recorded in a journal to a manager, in order, stopping at a torn record.
+	 * Each record sets a town or road to what it became, creating the towns a road needs, so
+	 * replaying the whole journal over a snapshot taken after any of its records, as a crash during
+	 * a checkpoint leaves, still ends with the graph the records describe
+	 * @param file the journal file, which may not exist
+	 * @param manager the manager to change, which must not have a journal open
+	 * @return the number of records applied
+	 * @throws IOException if the file cannot be read
+	 */
+	public static int replay(File file, TownGraphManager manager) throws IOException {
+		return file.exists()? read(file, manager, new long[1]): 0;
+	}
+
+	/**
+	 * Return the length of the complete records at the start of a journal
+	 * @param file the journal file
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long validLength(File file) throws IOException {
+		long[] length = new long[1];
+		read(file, null, length);
+		return length[0];
+	}
+
+	/**
+	 * Read the complete records of a journal
+	 * @param file the journal file
+	 * @param manager the manager to apply them to, or null to only check them
+	 * @param length filled in with the length of the complete records
+	 * @return the number of records read
+	 * @throws IOException if the file cannot be read
+	 */
+	private static int read(File file, TownGraphManager manager, long[] length) throws IOException {
+		int count = 0;
+		CRC32 crc = new CRC32();
+		byte[] body = new byte[256];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			while (true) {
+				int size;
+				long checksum;
+				try {
+					size = in.readInt();
+					checksum = in.readInt() & 0xFFFFFFFFL;
+					if (size < 1 || size > file.length()) {
+						break; // A torn or damaged length
+					}
+					if (size > body.length) {
+						body = new byte[Math.max(size, body.length * 2)];
+					}
+					in.readFully(body, 0, size);
+				}
+				catch (EOFException e) {
+					break; // A record cut short by a crash
+				}
+				crc.reset();
+				crc.update(body, 0, size);
+				if (crc.getValue() != checksum) {
+					break;
+				}
+				if (manager != null) {
+					apply(ByteBuffer.wrap(body, 0, size), manager);
+				}
+				length[0] += RECORD_HEADER + size;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Apply one record to a manager
+	 * @param body the body of the record
+	 * @param manager the manager to change
+	 * @throws IOException if the record has an unknown type
+	 */
+	private static void apply(ByteBuffer body, TownGraphManager manager) throws IOException {
+		byte type = body.get();
+		switch (type) {
+		case ADD_TOWN:
+			manager.addTown(getString(body));
+			break;
+		case ADD_ROAD: {
+			String town1 = getString(body);
+			String town2 = getString(body);
+			int weight = body.getInt();
+			// A town deleted by a later record may be missing from a newer snapshot
+			manager.addTown(town1);
+			manager.addTown(town2);
+			manager.addRoad(town1, town2, weight, getString(body));
+			break;
+		}
+		case DELETE_ROAD:
+			manager.deleteRoadConnection(getString(body), getString(body), getString(body));
+			break;
+		case DELETE_TOWN:
+			manager.deleteTown(getString(body));
+			break;
+		case SET_ROAD_WEIGHT:
+			manager.setRoadWeight(getString(body), getString(body), body.getInt());
+			break;
+		case SET_COORDINATES:
+			manager.setTownCoordinates(getString(body), body.getDouble(), body.getDouble());
+			break;
+		default:
+			throw new IOException("Unknown journal record type " + type);
+		}
+	}
+
+	/**
+	 * Read a string written by putString
+	 * @param body the body of a record
+	 */
+	private static String getString(ByteBuffer body) {
+		int length = body.getInt();
+		String s = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+		body.position(body.position() + length);
+		return s;
+	}
+
+	/**
+	 * Start a record, leaving room for its length and checksum
+	 * @param type the record type
+	 * @throws IOException if the flusher failed to force an earlier group
+	 */
+	private void start(byte type) throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+		reserve(RECORD_HEADER + 1);
+		recordStart = pending.position();
+		pending.putLong(0);
+		pending.put(type);
+	}
+
+	/**
+	 * Finish the record started last, then write and force the group if it is full or has waited
+	 * too long. The first record of a group has the flusher check it once maxDelay has passed
+	 * @throws IOException if the journal cannot be written
+	 */
+	private void end() throws IOException {
+		int start = recordStart;
+		int size = pending.position() - start - RECORD_HEADER;
+		crc.reset();
+		crc.update(pending.array(), start + RECORD_HEADER, size);
+		pending.putInt(start, size);
+		pending.putInt(start + 4, (int) crc.getValue());
+		if (pendingCount++ == 0) {
+			firstPending = System.nanoTime();
+			if (flusher != null) {
+				flusher.schedule(this::flushIfDue, maxDelay, TimeUnit.NANOSECONDS);
+			}
+		}
+		if (pendingCount >= groupSize || System.nanoTime() - firstPending >= maxDelay) {
+			sync();
+		}
+	}
+
+	/**
+	 * Add a string to the record being built, as its UTF-8 length and bytes
+	 * @param s the string
+	 */
+	private void putString(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		reserve(4 + bytes.length);
+		pending.putInt(bytes.length);
+		pending.put(bytes);
+	}
+
+	/**
+	 * Add an int to the record being built
+	 * @param value the int
+	 */
+	private void putInt(int value) {
+		reserve(4);
+		pending.putInt(value);
+	}
+
+	/**
+	 * Add a double to the record being built
+	 * @param value the double
+	 */
+	private void putDouble(double value) {
+		reserve(8);
+		pending.putDouble(value);
+	}
+
+	/**
+	 * Make room in the waiting records
+	 * @param bytes the number of bytes about to be added
+	 */
+	private void reserve(int bytes) {
+		if (pending.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+			pending.flip();
+			larger.put(pending);
+			pending = larger;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class MutationJournal_STUDENT_Test {
+	private TownGraphManager manager;
+	private File snapshot;
+	private File journal;
+
+	@Before
+	public void setUp() throws Exception {
+		manager = new TownGraphManager();
+		snapshot = File.createTempFile("graph", ".snapshot");
+		journal = File.createTempFile("graph", ".journal");
+		snapshot.delete();
+		snapshot.deleteOnExit();
+		journal.deleteOnExit();
+		manager.recover(snapshot, journal, 1, 0);
+		for (int i = 1; i < 6; i++) {
+			manager.addTown("Town_" + i);
+		}
+		manager.addRoad("Town_1", "Town_2", 2, "Julia Lane");
+		manager.addRoad("Town_1", "Town_3", 4, "James Highway");
+		manager.addRoad("Town_2", "Town_4", 6, "SR-332");
+		manager.addRoad("Town_3", "Town_4", 1, "I-746");
+		manager.addRoad("Town_4", "Town_5", 3, "Beltway");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		manager.closeJournal();
+		snapshot.delete();
+		journal.delete();
+		manager = null;
+	}
+
+	@Test
+	public void testRecover() throws Exception {
+		manager.setRoadWeight("Town_1", "Town_3", 9);
+		manager.deleteRoadConnection("Town_4", "Town_5", "Beltway");
+		manager.deleteTown("Town_5");
+		manager.setTownCoordinates("Town_2", 1.5, -2.25);
+		manager.closeJournal();
+
+		TownGraphManager recovered = new TownGraphManager();
+		assertEquals(14, recovered.recover(snapshot, journal, 1, 0));
+		assertEquals(manager.allTowns(), recovered.allTowns());
+		assertEquals(manager.allRoads(), recovered.allRoads());
+		assertEquals(manager.getPath("Town_1", "Town_4"), recovered.getPath("Town_1", "Town_4"));
+		assertEquals(-2.25, recovered.getTown("Town_2").getY(), 0.0);
+		recovered.closeJournal();
+	}
+
+	@Test
+	public void testTornRecord() throws Exception {
+		manager.closeJournal();
+		long complete = journal.length();
+		try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+			raf.seek(complete);
+			raf.writeInt(40);
+			raf.writeInt(0);
+			raf.write(new byte[] {1, 0, 0});
+		}
+
+		TownGraphManager recovered = new TownGraphManager();
+		assertEquals(10, recovered.recover(snapshot, journal, 1, 0));
+		assertEquals(complete, journal.length());
+		recovered.addTown("Town_6");
+		recovered.closeJournal();
+
+		TownGraphManager again = new TownGraphManager();
+		assertEquals(11, again.recover(snapshot, journal, 1, 0));
+		assertTrue(again.containsTown("Town_6"));
+		again.closeJournal();
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		manager.closeJournal();
+		manager.recover(snapshot, journal, 3, Long.MAX_VALUE);
+		long length = journal.length();
+		manager.addTown("Town_6");
+		manager.addTown("Town_7");
+		assertEquals(length, journal.length());
+		manager.addTown("Town_8");
+		assertTrue(journal.length() > length);
+
+		length = journal.length();
+		manager.addTown("Town_9");
+		manager.syncJournal();
+		assertTrue(journal.length() > length);
+	}
+
+	@Test
+	public void testMaxDelay() throws Exception {
+		manager.closeJournal();
+		manager.recover(snapshot, journal, 100, 20);
+		long length = journal.length();
+		manager.addTown("Town_6");
+		// No further change comes, so the flusher forces the group once it has waited 20 ms
+		long deadline = System.currentTimeMillis() + 5000;
+		while (journal.length() == length && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(journal.length() > length);
+	}
+
+	@Test
+	public void testCrashDuringCheckpoint() throws Exception {
+		manager.checkpoint(snapshot);
+		manager.addRoad("Town_5", "Town_1", 8, "West Lane");
+		manager.deleteTown("Town_5");
+		manager.setRoadWeight("Town_1", "Town_2", 9);
+		manager.deleteRoadConnection("Town_3", "Town_4", "I-746");
+		manager.addRoad("Town_3", "Town_4", 5, "I-746");
+		// The new snapshot is in place but the journal was not emptied yet
+		manager.saveSnapshot(snapshot);
+		manager.closeJournal();
+
+		TownGraphManager recovered = new TownGraphManager();
+		recovered.recover(snapshot, journal, 1, 0);
+		assertEquals(manager.allTowns(), recovered.allTowns());
+		assertEquals(manager.allRoads(), recovered.allRoads());
+		assertEquals(manager.getPath("Town_1", "Town_4"), recovered.getPath("Town_1", "Town_4"));
+		recovered.closeJournal();
+	}
+
+	@Test
+	public void testNoRecordForFailedChange() throws Exception {
+		assertFalse(manager.addTown("Town_1"));
+		try {
+			manager.addRoad("Town_1", "Town_9", 3, "Nowhere Road");
+			fail("A road to a missing town should be rejected");
+		}
+		catch (IllegalArgumentException e) {
+			// Expected, and nothing is journaled
+		}
+		assertFalse(manager.deleteTown("Town_9"));
+		assertFalse(manager.deleteRoadConnection("Town_1", "Town_5", "Beltway"));
+		assertFalse(manager.setTownCoordinates("Town_9", 1, 1));
+		manager.closeJournal();
+		TownGraphManager recovered = new TownGraphManager();
+		assertEquals(10, recovered.recover(snapshot, journal, 1, 0));
+		recovered.closeJournal();
+	}
+
+	@Test
+	public void testCheckpoint() throws Exception {
+		manager.checkpoint(snapshot);
+		assertEquals(0, journal.length());
+		assertTrue(snapshot.exists());
+		manager.addRoad("Town_2", "Town_5", 7, "West Lane");
+		manager.closeJournal();
+
+		TownGraphManager recovered = new TownGraphManager();
+		assertEquals(1, recovered.recover(snapshot, journal, 1, 0));
+		assertEquals(manager.allRoads(), recovered.allRoads());
+		recovered.closeJournal();
+	}
+
+}
@@ -0,0 +1,223 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of shortest routes keyed by the unordered pair of town names, so a query from
+ * town A to town B and one from town B to town A share an entry. The least recently used route is
+ * evicted once the cache is full. Entries are dropped only when a change to the graph can affect them:
+ * a removed road drops the routes along it, a removed town the routes through it, and an added road
+ * the routes it could shorten.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class PathCache {
+
+	// Variables
+	private final int capacity;
+	private final LinkedHashMap<TownPair, Route> routes; // in access order, eldest first
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Constructor
+	 * @param capacity the most routes the cache holds
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public PathCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+		}
+		this.capacity = capacity;
+		routes = new LinkedHashMap<TownPair, Route>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<TownPair, Route> eldest) {
+				if (size() > PathCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Return the cached route from town1 to town2, walked in that direction
+	 * @param town1 name of the town where the route starts
+	 * @param town2 name of the town where the route ends
+	 * @return the route, or null if it is not cached
+	 */
+	public synchronized Route get(String town1, String town2) {
+		Route route = routes.get(new TownPair(town1, town2));
+		if (route == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return isOrdered(town1, town2)? route: route.reverse();
+	}
+
+	/**
+	 * Cache the route from town1 to town2
+	 * @param town1 name of the town where the route starts
+	 * @param town2 name of the town where the route ends
+	 * @param route the shortest route between them, Route.NONE if there is none
+	 */
+	public synchronized void put(String town1, String town2, Route route) {
+		routes.put(new TownPair(town1, town2), isOrdered(town1, town2)? route: route.reverse());
+	}
+
+	/**
+	 * Drop the routes a new road could shorten: those longer than the road, those with no path,
+	 * and those along a road it replaces between the same towns
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 * @param weight distance of the road
+	 */
+	public synchronized void roadAdded(String town1, String town2, int weight) {
+		Iterator<Route> it = routes.values().iterator();
+		while (it.hasNext()) {
+			Route route = it.next();
+			if (route.isEmpty() || route.getDistance() > weight || route.uses(town1, town2)) {
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Drop the routes along a removed road, every other route stays the shortest
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 */
+	public synchronized void roadRemoved(String town1, String town2) {
+		Iterator<Route> it = routes.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().uses(town1, town2)) {
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Drop the routes that start, end or pass through a removed town
+	 * @param town name of the town
+	 */
+	public synchronized void townRemoved(String town) {
+		Iterator<Map.Entry<TownPair, Route>> it = routes.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TownPair, Route> entry = it.next();
+			if (entry.getKey().contains(town) || entry.getValue().visits(town)) {
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Drop every route
+	 */
+	public synchronized void clear() {
+		invalidations += routes.size();
+		routes.clear();
+	}
+
+	/**
+	 * Return the number of routes in the cache
+	 */
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * Return the most routes the cache holds
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the number of lookups that found a route
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Return the number of lookups that found no route
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Return the number of routes dropped to make room for new ones
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Return the number of routes dropped because the graph changed
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Return true if the routes between the two towns are stored from town1 to town2
+	 * @param town1 name of one town
+	 * @param town2 name of the other town
+	 */
+	private static boolean isOrdered(String town1, String town2) {
+		return town1.compareTo(town2) <= 0;
+	}
+
+	/**
+	 * An unordered pair of town names, kept with the smaller name first
+	 */
+	private static final class TownPair {
+		private final String first;
+		private final String second;
+
+		/**
+		 * Constructor
+		 * @param town1 name of one town
+		 * @param town2 name of the other town
+		 */
+		TownPair(String town1, String town2) {
+			boolean ordered = isOrdered(town1, town2);
+			first = ordered? town1: town2;
+			second = ordered? town2: town1;
+		}
+
+		/**
+		 * Return true if the town is one of the pair
+		 * @param town name of the town
+		 */
+		boolean contains(String town) {
+			return first.equals(town) || second.equals(town);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof TownPair == false) {
+				return false;
+			}
+			TownPair other = (TownPair) obj;
+			return first.equals(other.first) && second.equals(other.second);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * first.hashCode() + second.hashCode();
+		}
+	}
+
+}
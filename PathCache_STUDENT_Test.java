@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class PathCache_STUDENT_Test {
+	private TownGraphManager graph;
+	private String[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraphManager();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		ArrayList<String> forward = graph.getPath(town[1], town[11]);
+		ArrayList<String> backward = graph.getPath(town[11], town[1]);
+		PathCache cache = graph.enablePathCache(10);
+		assertEquals(forward, graph.getPath(town[1], town[11]));
+		assertEquals(forward, graph.getPath(town[1], town[11]));
+		assertEquals(backward, graph.getPath(town[11], town[1]));
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEviction() {
+		PathCache cache = graph.enablePathCache(2);
+		graph.getPath(town[1], town[11]);
+		graph.getPath(town[1], town[4]);
+		graph.getPath(town[1], town[11]);
+		graph.getPath(town[6], town[7]);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		// Town_1 to Town_4 was the least recently used
+		assertNull(cache.get(town[1], town[4]));
+		assertNotNull(cache.get(town[11], town[1]));
+	}
+
+	@Test
+	public void testDeleteRoadConnection() {
+		PathCache cache = graph.enablePathCache(10);
+		assertEquals(2, graph.getPath(town[1], town[11]).size());
+		graph.getPath(town[1], town[4]);
+		assertTrue(graph.deleteRoadConnection(town[2], town[11], "Road_12"));
+		assertEquals(1, cache.size());
+		assertEquals(4, graph.getPath(town[1], town[11]).size());
+	}
+
+	@Test
+	public void testAddRoad() {
+		PathCache cache = graph.enablePathCache(10);
+		graph.getPath(town[1], town[11]);
+		graph.getPath(town[1], town[2]);
+		assertTrue(graph.getPath(town[1], town[12]).isEmpty());
+		graph.addRoad(town[12], town[1], 2, "Shortcut");
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getInvalidations());
+		ArrayList<String> path = graph.getPath(town[12], town[11]);
+		assertEquals("Town_12 via Shortcut to Town_1 2 mi", path.get(0));
+		assertEquals(3, path.size());
+	}
+
+	@Test
+	public void testDeleteTown() {
+		PathCache cache = graph.enablePathCache(10);
+		graph.getPath(town[1], town[11]);
+		graph.getPath(town[1], town[4]);
+		graph.getPath(town[6], town[2]);
+		assertTrue(graph.deleteTown(town[2]));
+		assertEquals(1, cache.size());
+		assertEquals(4, graph.getPath(town[1], town[11]).size());
+	}
+
+	@Test
+	public void testDisable() {
+		graph.enablePathCache(10);
+		graph.getPath(town[1], town[11]);
+		graph.disablePathCache();
+		assertNull(graph.getPathCache());
+		assertEquals(2, graph.getPath(town[1], town[11]).size());
+	}
+
+	@Test
+	public void testSetRoadWeight() {
+		PathCache cache = graph.enablePathCache(10);
+		assertEquals(2, graph.getPath(town[1], town[11]).size());
+		graph.getPath(town[1], town[4]);
+		assertTrue(graph.setRoadWeight(town[2], town[11], 20));
+		assertEquals(1, cache.size());
+		assertEquals(4, graph.getPath(town[1], town[11]).size());
+		assertTrue(graph.setRoadWeight(town[2], town[11], 1));
+		assertEquals(2, graph.getPath(town[1], town[11]).size());
+		assertFalse(graph.setRoadWeight(town[2], town[12], 1));
+	}
+}
\ No newline at end of file
@@ -15,6 +15,7 @@ public class Road implements Comparable<Road> {
 	private Town source, destination;
 	protected int weight;
 	private String roadName;
+	private Graph graph; // graph the road is in, told when the distance changes
 
 	/**
 	 * Constructor
@@ -96,7 +97,19 @@ public class Road implements Comparable<Road> {
 	 * @param weight the distance between vertices
 	 */
 	public void setWeight(int weight) {
+		int old = this.weight;
 		this.weight = weight;
+		if (graph != null && old != weight) {
+			graph.roadWeightChanged(this);
+		}
+	}
+
+	/**
+	 * Set the graph the road is in, so it can be told when the distance changes
+	 * @param graph the graph, or null once the road is removed
+	 */
+	void setGraph(Graph graph) {
+		this.graph = graph;
 	}
 
 	/**
@@ -140,6 +153,14 @@ public class Road implements Comparable<Road> {
 				|| source.equals(r.destination) && destination.equals(r.source);
 	}
 
+	/**
+	 * Returns the hashcode of the road, the same whichever way round its towns are
+	 */
+	@Override
+	public int hashCode() {
+		return source.hashCode() + destination.hashCode();
+	}
+
 	/**
 	 * Comparing two roads. 0 if the road names are the same, a positive or negative
 	 * number if the road names are not the same
@@ -156,7 +177,7 @@ public class Road implements Comparable<Road> {
 	 */
 	@Override
 	public String toString() {
-		return destination.getPreviousTown().getName() + " via " + getName() + " to " 
+		return source.getName() + " via " + getName() + " to " 
 				+ destination.getName() + " " + getWeight() + " mi";	
 	}
 
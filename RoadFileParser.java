@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a road file straight from its bytes. A road line "road,miles;town A;town B" is cut at the
+ * ';' and ',' delimiters by a byte scan rather than a regex, the miles are parsed in place, and a
+ * town or road name only becomes a String the first time it is seen: later lines get the same
+ * String back from a table keyed by the bytes. Lines after "[coordinates]" are read the same way.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class RoadFileParser {
+
+	/**
+	 * Receives the roads and town positions of a file, in file order
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for each road line
+		 * @param road name of the road
+		 * @param miles distance of the road
+		 * @param town1 name of one end
+		 * @param town2 name of the other end
+		 */
+		void road(String road, int miles, String town1, String town2);
+
+		/**
+		 * Called for each line of the coordinates section
+		 * @param town name of the town
+		 * @param x the x coordinate (or longitude) of the town
+		 * @param y the y coordinate (or latitude) of the town
+		 */
+		void coordinates(String town, double x, double y);
+	}
+
+	private static final byte[] COORDINATES_SECTION = TownGraphManager.COORDINATES_SECTION.getBytes(StandardCharsets.UTF_8);
+
+	// Variables
+	private final Handler handler;
+	private final NameTable names = new NameTable();
+	private final int[] fieldStarts = new int[4]; // field -> first byte of the current line's field
+	private final int[] fieldEnds = new int[4]; // field -> byte after the field
+	private boolean isCoordinates;
+
+	/**
+	 * Constructor
+	 * @param handler receives what is read
+	 */
+	public RoadFileParser(Handler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Read every line of the stream, which is left open
+	 * @param stream the bytes of a road file, in UTF-8
+	 * @throws IOException if the stream cannot be read
+	 * @throws IllegalArgumentException if a line has too few fields
+	 * @throws NumberFormatException if a distance or coordinate is not a number
+	 */
+	public void parse(InputStream stream) throws IOException {
+		byte[] buffer = new byte[1 << 16];
+		int end = 0; // bytes held in the buffer
+		while (true) {
+			if (end == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2); // A line longer than the buffer
+			}
+			int read = stream.read(buffer, end, buffer.length - end);
+			if (read == -1) {
+				break;
+			}
+			end = parseBuffer(buffer, end + read);
+		}
+		parseLine(buffer, 0, end);
+	}
+
+	/**
+	 * Read every line from the position to the limit of a buffer, such as a mapped file region.
+	 * The bytes are copied out a block at a time, leaving the buffer's position at its limit
+	 * @param bytes the bytes of a road file, in UTF-8
+	 * @throws IllegalArgumentException if a line has too few fields
+	 * @throws NumberFormatException if a distance or coordinate is not a number
+	 */
+	public void parse(ByteBuffer bytes) {
+		byte[] buffer = new byte[1 << 16];
+		int end = 0; // bytes held in the buffer
+		while (bytes.hasRemaining()) {
+			if (end == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2); // A line longer than the buffer
+			}
+			int read = Math.min(buffer.length - end, bytes.remaining());
+			bytes.get(buffer, end, read);
+			end = parseBuffer(buffer, end + read);
+		}
+		parseLine(buffer, 0, end);
+	}
+
+	/**
+	 * Return true once the coordinates section has started
+	 */
+	boolean isCoordinates() {
+		return isCoordinates;
+	}
+
+	/**
+	 * Say whether the next lines are in the coordinates section, for a parser that starts partway
+	 * through a file
+	 * @param isCoordinates true to read the next lines as town positions
+	 */
+	void setCoordinates(boolean isCoordinates) {
+		this.isCoordinates = isCoordinates;
+	}
+
+	/**
+	 * Read the complete lines at the start of the buffer and move the unfinished last one to the front
+	 * @param buffer the bytes read so far
+	 * @param end the number of bytes held
+	 * @return the number of bytes left, those of the unfinished line
+	 */
+	private int parseBuffer(byte[] buffer, int end) {
+		int start = parseLines(buffer, 0, end);
+		System.arraycopy(buffer, start, buffer, 0, end - start);
+		return end - start;
+	}
+
+	/**
+	 * Read the complete lines of a range of bytes
+	 * @param bytes the bytes to read
+	 * @param start index of the first byte
+	 * @param end index after the last byte
+	 * @return the index where the unfinished last line starts, end if there is none
+	 */
+	int parseLines(byte[] bytes, int start, int end) {
+		int lineStart = start;
+		for (int i = start; i < end; i++) {
+			byte b = bytes[i];
+			if (b == '\n' || b == '\r') {
+				parseLine(bytes, lineStart, i);
+				lineStart = i + 1;
+			}
+		}
+		return lineStart;
+	}
+
+	/**
+	 * Read one line, without its line break
+	 * @param bytes the bytes holding the line
+	 * @param start index of the first byte of the line
+	 * @param end index after the last byte of the line
+	 */
+	void parseLine(byte[] bytes, int start, int end) {
+		// Blank lines and the section line are matched ignoring spaces around them, as String.trim does
+		int first = start;
+		int last = end;
+		while (first < last && (bytes[first] & 0xff) <= ' ') {
+			first++;
+		}
+		while (last > first && (bytes[last - 1] & 0xff) <= ' ') {
+			last--;
+		}
+		if (first == last) {
+			return;
+		}
+		if (Arrays.equals(bytes, first, last, COORDINATES_SECTION, 0, COORDINATES_SECTION.length)) {
+			isCoordinates = true;
+			return;
+		}
+		if (isCoordinates) {
+			split(bytes, start, end, 3, false);
+			handler.coordinates(name(bytes, 0), number(bytes, 1), number(bytes, 2));
+		}
+		else {
+			split(bytes, start, end, 4, true);
+			handler.road(name(bytes, 0), miles(bytes, 1), name(bytes, 2), name(bytes, 3));
+		}
+	}
+
+	/**
+	 * Find the first fields of a line, ignoring any after them
+	 * @param bytes the bytes holding the line
+	 * @param start index of the first byte of the line
+	 * @param end index after the last byte of the line
+	 * @param count the number of fields needed
+	 * @param isRoad true if ',' also ends a field, as on road lines
+	 * @throws IllegalArgumentException if the line has fewer fields
+	 */
+	private void split(byte[] bytes, int start, int end, int count, boolean isRoad) {
+		int field = 0;
+		fieldStarts[0] = start;
+		for (int i = start; i < end && field < count; i++) {
+			byte b = bytes[i];
+			if (b == ';' || isRoad && b == ',') {
+				fieldEnds[field++] = i;
+				if (field < count) {
+					fieldStarts[field] = i + 1;
+				}
+			}
+		}
+		if (field == count - 1) {
+			fieldEnds[field++] = end;
+		}
+		if (field < count || fieldStarts[count - 1] == fieldEnds[count - 1]) {
+			throw new IllegalArgumentException("Malformed line: " + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Return a field of the current line as a name, the same String each time the bytes repeat
+	 * @param bytes the bytes holding the line
+	 * @param field the field index
+	 */
+	private String name(byte[] bytes, int field) {
+		return names.get(bytes, fieldStarts[field], fieldEnds[field]);
+	}
+
+	/**
+	 * Parse a field of the current line as a distance, without making a String unless it is not a
+	 * plain run of digits
+	 * @param bytes the bytes holding the line
+	 * @param field the field index
+	 * @throws NumberFormatException if the field is not an int
+	 */
+	private int miles(byte[] bytes, int field) {
+		int start = fieldStarts[field];
+		int end = fieldEnds[field];
+		if (start == end) {
+			return Integer.parseInt(""); // Throws for the empty field
+		}
+		boolean isNegative = bytes[start] == '-';
+		int i = isNegative || bytes[start] == '+'? start + 1: start;
+		if (i == end || end - i > 9) {
+			return Integer.parseInt(text(bytes, field)); // A lone sign, or may overflow: let parseInt decide
+		}
+		int value = 0;
+		for (; i < end; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.parseInt(text(bytes, field)); // Throws with the usual message
+			}
+			value = value * 10 + digit;
+		}
+		return isNegative? -value: value;
+	}
+
+	/**
+	 * Parse a field of the current line as a coordinate
+	 * @param bytes the bytes holding the line
+	 * @param field the field index
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	private double number(byte[] bytes, int field) {
+		return Double.parseDouble(text(bytes, field));
+	}
+
+	/**
+	 * Return a field of the current line as a new String
+	 * @param bytes the bytes holding the line
+	 * @param field the field index
+	 */
+	private String text(byte[] bytes, int field) {
+		return new String(bytes, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Open-addressing table from the bytes of a name to its String
+	 */
+	private static class NameTable {
+		private int[] hashes = new int[1024];
+		private byte[][] keys = new byte[1024][];
+		private String[] values = new String[1024];
+		private int size;
+
+		String get(byte[] bytes, int start, int end) {
+			int hash = 1;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + bytes[i];
+			}
+			int mask = keys.length - 1;
+			int slot = mix(hash) & mask;
+			while (keys[slot] != null) {
+				if (hashes[slot] == hash && Arrays.equals(keys[slot], 0, keys[slot].length, bytes, start, end)) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+			hashes[slot] = hash;
+			keys[slot] = Arrays.copyOfRange(bytes, start, end);
+			values[slot] = value;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+			return value;
+		}
+
+		private static int mix(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+
+		private void grow() {
+			int[] oldHashes = hashes;
+			byte[][] oldKeys = keys;
+			String[] oldValues = values;
+			hashes = new int[oldKeys.length * 2];
+			keys = new byte[oldKeys.length * 2][];
+			values = new String[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int slot = mix(oldHashes[i]) & mask;
+					while (keys[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					hashes[slot] = oldHashes[i];
+					keys[slot] = oldKeys[i];
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+	}
+
+}
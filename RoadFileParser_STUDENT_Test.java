@@ -0,0 +1,107 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class RoadFileParser_STUDENT_Test {
+	private ArrayList<String> roads;
+	private ArrayList<String> names;
+	private ArrayList<String> coordinates;
+	private RoadFileParser parser;
+
+	@Before
+	public void setUp() throws Exception {
+		roads = new ArrayList<>();
+		names = new ArrayList<>();
+		coordinates = new ArrayList<>();
+		parser = new RoadFileParser(new RoadFileParser.Handler() {
+			@Override
+			public void road(String road, int miles, String town1, String town2) {
+				roads.add(road + "|" + miles + "|" + town1 + "|" + town2);
+				names.add(town1);
+			}
+
+			@Override
+			public void coordinates(String town, double x, double y) {
+				coordinates.add(town + "|" + x + "|" + y);
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		parser = null;
+	}
+
+	private void parse(String text) throws Exception {
+		parser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testRoadLines() throws Exception {
+		parse("I-95,10;Baltimore;Washington\r\n\r\n  \nUS-1,-3;Baltimore;Laurel;extra\nRoute 2,+7;Laurel;Bowie");
+		assertEquals(3, roads.size());
+		assertEquals("I-95|10|Baltimore|Washington", roads.get(0));
+		assertEquals("US-1|-3|Baltimore|Laurel", roads.get(1));
+		assertEquals("Route 2|7|Laurel|Bowie", roads.get(2));
+		assertSame(names.get(0), names.get(1)); // A repeated name is not decoded again
+	}
+
+	@Test
+	public void testCoordinates() throws Exception {
+		parse("R1,5;Alpha;Beta\n " + TownGraphManager.COORDINATES_SECTION + " \nAlpha;1.5;-2\nBeta;3;4\n");
+		assertEquals(1, roads.size());
+		assertEquals(2, coordinates.size());
+		assertEquals("Alpha|1.5|-2.0", coordinates.get(0));
+	}
+
+	@Test
+	public void testLinesAcrossBuffers() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			text.append("Road_").append(i).append(',').append(i % 100).append(";Town_").append(i)
+					.append(";Town_").append(i + 1).append('\n');
+		}
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			longName.append('x');
+		}
+		text.append("Long,1;").append(longName).append(";Town_0");
+		parse(text.toString());
+		assertEquals(20001, roads.size());
+		assertEquals("Road_12345|45|Town_12345|Town_12346", roads.get(12345));
+		assertEquals("Long|1|" + longName + "|Town_0", roads.get(20000));
+	}
+
+	@Test
+	public void testMalformedLines() throws Exception {
+		try {
+			parse("R1,5;Alpha\n");
+			fail("A line with too few fields should be rejected");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("R1,5;Alpha"));
+		}
+		try {
+			parse("R1,five;Alpha;Beta\n");
+			fail("A distance that is not a number should be rejected");
+		}
+		catch (NumberFormatException e) {
+			assertTrue(true);
+		}
+		try {
+			parse("R1,99999999999;Alpha;Beta\n");
+			fail("A distance too large for an int should be rejected");
+		}
+		catch (NumberFormatException e) {
+			assertTrue(true);
+		}
+	}
+
+}
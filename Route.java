@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+
+/**
+ * An immutable path through the graph: the towns it passes, the roads between them and their
+ * distances. Searches return a Route, and the "town A via road R to town B distance mi" Strings of
+ * Graph.shortestPath are only built when toPaths is called.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class Route {
+
+	/** The route of a query with no path */
+	public static final Route NONE = new Route(new String[0], new String[0], new int[0]);
+
+	// Variables
+	private final String[] towns; // towns[i] to towns[i + 1] is the i-th step
+	private final String[] roads; // road of each step
+	private final int[] weights; // distance of each step
+	private final int distance;
+
+	/**
+	 * Constructor, the arrays are kept as they are and must not be changed afterwards
+	 * @param towns the towns along the route, one more than there are roads (or none)
+	 * @param roads the road names of the steps
+	 * @param weights the distances of the steps
+	 */
+	Route(String[] towns, String[] roads, int[] weights) {
+		this.towns = towns;
+		this.roads = roads;
+		this.weights = weights;
+		int total = 0;
+		for (int w: weights) {
+			total += w;
+		}
+		distance = total;
+	}
+
+	/**
+	 * Return true if the route has no steps
+	 */
+	public boolean isEmpty() {
+		return roads.length == 0;
+	}
+
+	/**
+	 * Return the number of roads on the route
+	 */
+	public int size() {
+		return roads.length;
+	}
+
+	/**
+	 * Return the total distance of the route
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Return the name of a town on the route
+	 * @param index 0 for the start, size() for the end
+	 */
+	public String getTown(int index) {
+		return towns[index];
+	}
+
+	/**
+	 * Return the name of a road on the route
+	 * @param index the step, from 0 to size() - 1
+	 */
+	public String getRoad(int index) {
+		return roads[index];
+	}
+
+	/**
+	 * Return the distance of a step of the route
+	 * @param index the step, from 0 to size() - 1
+	 */
+	public int getWeight(int index) {
+		return weights[index];
+	}
+
+	/**
+	 * Return the same route walked the other way, roads being undirected
+	 * @return the reversed route
+	 */
+	public Route reverse() {
+		int k = roads.length;
+		String[] t = new String[towns.length];
+		String[] r = new String[k];
+		int[] w = new int[k];
+		for (int i = 0; i < towns.length; i++) {
+			t[i] = towns[towns.length - 1 - i];
+		}
+		for (int i = 0; i < k; i++) {
+			r[i] = roads[k - 1 - i];
+			w[i] = weights[k - 1 - i];
+		}
+		return new Route(t, r, w);
+	}
+
+	/**
+	 * Return true if the route goes along the road between the two towns, in either direction
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 */
+	public boolean uses(String town1, String town2) {
+		for (int i = 0; i < roads.length; i++) {
+			if (towns[i].equals(town1) && towns[i + 1].equals(town2)
+					|| towns[i].equals(town2) && towns[i + 1].equals(town1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return true if the route starts, ends or passes through the town
+	 * @param town name of the town
+	 */
+	public boolean visits(String town) {
+		for (String t: towns) {
+			if (t.equals(town)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Represent the route as Strings of the form "town A via road R to town B distance mi"
+	 * @return paths an arraylist with one String per road
+	 */
+	public ArrayList<String> toPaths() {
+		ArrayList<String> paths = new ArrayList<>(roads.length);
+		for (int i = 0; i < roads.length; i++) {
+			paths.add(towns[i] + " via " + roads[i] + " to " + towns[i + 1] + " " + weights[i] + " mi");
+		}
+		return paths;
+	}
+
+	/**
+	 * Return the route as its path Strings joined together
+	 */
+	@Override
+	public String toString() {
+		return toPaths().toString();
+	}
+
+}
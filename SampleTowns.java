@@ -0,0 +1,55 @@
+/**
+ * The map the student tests share: Town_1 to Town_11 joined by twelve roads, Road_1 to Road_12,
+ * and Town_12 with no road at all
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class SampleTowns {
+
+	/** Number of towns on the map */
+	public static final int TOWNS = 12;
+
+	// Variables
+	private static final int[][] ROADS = { // source, destination, distance in miles
+			{1, 2, 2}, {1, 3, 4}, {1, 5, 6}, {3, 7, 1}, {3, 8, 2}, {4, 8, 3},
+			{6, 9, 3}, {9, 10, 4}, {8, 10, 2}, {5, 10, 5}, {10, 11, 3}, {2, 11, 6}};
+
+	private SampleTowns() {
+	}
+
+	/**
+	 * Add the towns and roads of the map to a graph
+	 * @param graph the graph to fill
+	 * @return town the towns added, town[i] being Town_i and town[0] unused
+	 */
+	public static Town[] addTo(GraphInterface<Town, Road> graph) {
+		Town[] town = new Town[TOWNS + 1];
+		for (int i = 1; i <= TOWNS; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for (int i = 0; i < ROADS.length; i++) {
+			graph.addEdge(town[ROADS[i][0]], town[ROADS[i][1]], ROADS[i][2], "Road_" + (i + 1));
+		}
+		return town;
+	}
+
+	/**
+	 * Add the towns and roads of the map to a town graph manager
+	 * @param manager the manager to fill
+	 * @return town the town names, town[i] being Town_i and town[0] unused
+	 */
+	public static String[] addTo(TownGraphManagerInterface manager) {
+		String[] town = new String[TOWNS + 1];
+		for (int i = 1; i <= TOWNS; i++) {
+			town[i] = "Town_" + i;
+			manager.addTown(town[i]);
+		}
+		for (int i = 0; i < ROADS.length; i++) {
+			manager.addRoad(town[ROADS[i][0]], town[ROADS[i][1]], ROADS[i][2], "Road_" + (i + 1));
+		}
+		return town;
+	}
+
+}
@@ -0,0 +1,25 @@
+/**
+ * The algorithms Graph.shortestPath can use to answer a query from one town to another.
+ * Every mode returns a shortest path, they only differ in how much of the graph they explore.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public enum SearchMode {
+
+	/** Dijkstra from the source town, stopping once the destination is settled */
+	DIJKSTRA,
+
+	/** Dijkstra from both towns at once, stopping when the two searches meet */
+	BIDIRECTIONAL,
+
+	/** A* guided by the straight-line distance between town coordinates, DIJKSTRA when a town has none */
+	ASTAR,
+
+	/** Upward search in the Contraction Hierarchy, built once and rebuilt after the graph changes */
+	CONTRACTION_HIERARCHY,
+
+	/** A* guided by landmark distances and the triangle inequality, needs no coordinates */
+	ALT
+
+}
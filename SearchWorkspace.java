@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * The distance labels of one thread's Dijkstra queries over a graph of int town ids, with the
+ * queue they share. A query starts by bumping a stamp, so the labels left by the last query are
+ * ignored rather than cleared and a query costs the towns it reaches, not the size of the graph.
+ * Each thread has one workspace, shared by every graph it queries and grown to fit the largest,
+ * so a new snapshot of a changed graph does not allocate labels again.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+class SearchWorkspace {
+
+	private static final ThreadLocal<SearchWorkspace> WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+
+	// Variables
+	int[] distances = new int[0]; // town id -> distance, meaningful when the town is labelled
+	int[] previousArcs = new int[0]; // town id -> arc used to reach the town, -1 for the source
+	IntPriorityQueue queue;
+	private int[] stamps = new int[0]; // town id -> query the labels belong to
+	private int stamp;
+	private int queueMaxWeight; // longest road the queue is built for, -1 for a binary heap
+	boolean inUse; // set while a search hands towns to a caller, which may search again
+
+	/**
+	 * Return the workspace of the calling thread, grown to fit the graph
+	 * @param n the number of towns of the graph
+	 * @param maxWeight the largest gap between the key last polled and a key queued after it, the
+	 * longest road for Dijkstra; -1 if there is no such bound, as when a road has a negative distance
+	 * @return the workspace, with an empty queue suited to the graph; a new one, not kept, if the
+	 * thread's workspace is in use by a search that called back into this one
+	 */
+	static SearchWorkspace forThread(int n, int maxWeight) {
+		SearchWorkspace workspace = WORKSPACES.get();
+		if (workspace.inUse) {
+			workspace = new SearchWorkspace();
+		}
+		workspace.fit(n, maxWeight);
+		return workspace;
+	}
+
+	/**
+	 * Grow the labels and replace the queue if they do not suit a graph
+	 * @param n the number of towns of the graph
+	 * @param maxWeight the largest gap between keys, -1 if there is no bound
+	 */
+	private void fit(int n, int maxWeight) {
+		if (stamps.length < n) {
+			// Grow by half again, so a graph gaining towns one at a time does not grow it every time
+			int capacity = Math.max(n, stamps.length + (stamps.length >> 1));
+			distances = Arrays.copyOf(distances, capacity);
+			previousArcs = Arrays.copyOf(previousArcs, capacity);
+			stamps = Arrays.copyOf(stamps, capacity); // New towns get stamp 0, never a query's
+			queue = null;
+		}
+		boolean buckets = maxWeight >= 0 && maxWeight <= CompactGraph.BUCKET_QUEUE_LIMIT;
+		if (queue == null || (buckets? queueMaxWeight < maxWeight: queueMaxWeight != -1)) {
+			queue = CompactGraph.newQueue(stamps.length, maxWeight);
+			queueMaxWeight = buckets? maxWeight: -1;
+		}
+	}
+
+	/**
+	 * Forget the labels of the last query
+	 */
+	void start() {
+		if (++stamp == 0) {
+			Arrays.fill(stamps, 0); // The stamp wrapped around, forget every old label
+			stamp = 1;
+		}
+	}
+
+	/**
+	 * Return true if the current query has labelled the town
+	 * @param town the town id
+	 */
+	boolean isLabelled(int town) {
+		return stamps[town] == stamp;
+	}
+
+	/**
+	 * Label a town for the current query
+	 * @param town the town id
+	 * @param distance the distance found
+	 * @param previousArc the arc used to reach the town
+	 */
+	void label(int town, int distance, int previousArc) {
+		stamps[town] = stamp;
+		distances[town] = distance;
+		previousArcs[town] = previousArc;
+	}
+
+}
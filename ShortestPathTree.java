@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+
+/**
+ * The shortest paths from one town to every town of a snapshot, as computed by a full Dijkstra.
+ * The tree is immutable, so it can be read from many threads. Each town keeps its distance, its
+ * parent and the arc from the parent, so the path to a town is read back in O(path length).
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class ShortestPathTree {
+
+	// Variables
+	private final CompactGraph graph;
+	private final int source;
+	private final int[] distances; // town id -> distance from the source, UNREACHABLE if none
+	private final int[] parents; // town id -> previous town on the path, -1 for the source and unreached towns
+	private final int[] parentArcs; // town id -> arc from the parent
+
+	/**
+	 * Constructor, runs Dijkstra from the source over the whole snapshot
+	 * @param graph the snapshot to search
+	 * @param source id of the town the paths start from
+	 */
+	public ShortestPathTree(CompactGraph graph, int source) {
+		this(graph, source, new int[graph.townCount()], new int[graph.townCount()], true);
+	}
+
+	/**
+	 * Constructor over labels already computed, such as those of a DeltaStepping search
+	 * @param graph the snapshot searched
+	 * @param source id of the town the paths start from
+	 * @param distances town id -> distance from the source, UNREACHABLE if none
+	 * @param parentArcs town id -> arc from the parent, -1 for the source and unreached towns
+	 */
+	ShortestPathTree(CompactGraph graph, int source, int[] distances, int[] parentArcs) {
+		this(graph, source, distances, parentArcs, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the snapshot to search
+	 * @param source id of the town the paths start from
+	 * @param distances town id -> distance, filled in if search is true
+	 * @param parentArcs town id -> arc from the parent, filled in if search is true
+	 * @param search true to run Dijkstra from the source to fill in the labels
+	 */
+	private ShortestPathTree(CompactGraph graph, int source, int[] distances, int[] parentArcs, boolean search) {
+		this.graph = graph;
+		this.source = source;
+		this.distances = distances;
+		this.parentArcs = parentArcs;
+		int n = graph.townCount();
+		parents = new int[n];
+		if (search) {
+			graph.search(source, -1, distances, parentArcs);
+		}
+		for (int v = 0; v < n; v++) {
+			parents[v] = parentArcs[v] == -1? -1: graph.arcSource(parentArcs[v]);
+		}
+	}
+
+	/**
+	 * Return the snapshot the tree was built over
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the name of the town the paths start from
+	 */
+	public String getSource() {
+		return graph.townName(source);
+	}
+
+	/**
+	 * Return the shortest distance from the source to a town
+	 * @param town the town id
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(int town) {
+		return distances[town];
+	}
+
+	/**
+	 * Return the shortest distance from the source to a town
+	 * @param townName name of the town
+	 * @return the distance, or CompactGraph.UNREACHABLE if there is no path or no such town
+	 */
+	public int distance(String townName) {
+		int town = graph.idOf(townName);
+		return town == -1? CompactGraph.UNREACHABLE: distances[town];
+	}
+
+	/**
+	 * Return true if there is a path from the source to the town
+	 * @param townName name of the town
+	 */
+	public boolean isReachable(String townName) {
+		return distance(townName) != CompactGraph.UNREACHABLE;
+	}
+
+	/**
+	 * Return the previous town on the shortest path from the source
+	 * @param town the town id
+	 * @return the parent id, -1 for the source and for towns that cannot be reached
+	 */
+	public int parent(int town) {
+		return parents[town];
+	}
+
+	/**
+	 * Find the shortest route from the source to a town
+	 * @param townName name of the town where the route ends
+	 * @return the route, Route.NONE if the town cannot be reached
+	 */
+	public Route shortestRoute(String townName) {
+		int destination = graph.idOf(townName);
+		if (destination == -1 || destination == source || parents[destination] == -1) {
+			return Route.NONE;
+		}
+		int length = 0;
+		for (int town = destination; town != source; town = parents[town]) {
+			length++;
+		}
+		int[] towns = new int[length + 1];
+		int[] arcs = new int[length];
+		towns[length] = destination;
+		for (int town = destination; town != source; town = parents[town]) {
+			arcs[--length] = parentArcs[town];
+			towns[length] = parents[town];
+		}
+		return graph.route(towns, arcs, arcs.length);
+	}
+
+	/**
+	 * Find the shortest path from the source to a town, in the same form as Graph.shortestPath
+	 * @param townName name of the town where the path ends
+	 * @return paths an arraylist of the shortest paths, empty if the town cannot be reached
+	 */
+	public ArrayList<String> shortestPath(String townName) {
+		return shortestRoute(townName).toPaths();
+	}
+
+}
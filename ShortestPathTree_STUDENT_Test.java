@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ShortestPathTree_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSameAsShortestPath() {
+		CompactGraph compact = graph.snapshot();
+		for (int i = 1; i < 13; i++) {
+			ShortestPathTree tree = graph.shortestPathTree(town[i]);
+			assertEquals("Town_" + i, tree.getSource());
+			for (int j = 1; j < 13; j++) {
+				assertEquals(graph.shortestPath(town[i], town[j]), tree.shortestPath("Town_" + j));
+				assertEquals(compact.distance(compact.idOf("Town_" + i), compact.idOf("Town_" + j)), 
+						tree.distance("Town_" + j));
+			}
+		}
+	}
+
+	@Test
+	public void testUnreachable() {
+		ShortestPathTree tree = graph.shortestPathTree(town[1]);
+		assertFalse(tree.isReachable("Town_12"));
+		assertEquals(CompactGraph.UNREACHABLE, tree.distance("Town_12"));
+		assertTrue(tree.shortestPath("Town_12").isEmpty());
+		assertTrue(tree.shortestPath("Town_1").isEmpty());
+		assertEquals(0, tree.distance("Town_1"));
+		assertFalse(tree.isReachable("Town_13"));
+	}
+
+	@Test
+	public void testDijkstraShortestPath() {
+		assertNull(graph.getShortestPathTree());
+		graph.dijkstraShortestPath(town[6]);
+		ShortestPathTree tree = graph.getShortestPathTree();
+		assertEquals("Town_6", tree.getSource());
+		assertEquals(15, tree.distance("Town_1"));
+		int parent = tree.parent(tree.getGraph().idOf("Town_1"));
+		assertEquals("Town_3", tree.getGraph().townName(parent));
+	}
+
+	@Test
+	public void testUnknownTown() {
+		try {
+			graph.shortestPathTree(new Town("Town_13"));
+			fail("No exception for a town not in the graph");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(true);
+		}
+	}
+
+	@Test
+	public void testSharedBetweenThreads() throws Exception {
+		ShortestPathTree tree = graph.shortestPathTree(town[1]);
+		ArrayList<String> expected = graph.shortestPath(town[1], town[9]);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		ArrayList<Future<ArrayList<String>>> results = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			results.add(pool.submit(() -> tree.shortestPath("Town_9")));
+		}
+		for (Future<ArrayList<String>> result: results) {
+			assertEquals(expected, result.get());
+		}
+		pool.shutdown();
+	}
+}
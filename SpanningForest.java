@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * A minimum spanning forest of a town graph: the roads of least total distance that keep every pair
+ * of connected towns connected. Large graphs use parallel Boruvka rounds, in which every component
+ * picks its shortest road to another component and the components joined by those roads merge; the
+ * number of components at least halves each round. Small graphs use Kruskal, which sorts the roads
+ * once and has no parallel overhead. Roads of equal distance are told apart by a fixed order, so the
+ * forest is always a minimum one.
+ * @author Auguste Kiendrebeogo
+ *
+ */
+
+public class SpanningForest {
+
+	/**
+	 * The algorithm used to build the forest
+	 */
+	public enum Method {
+		/** Sort the roads, then keep each one that joins two trees */
+		KRUSKAL,
+		/** Rounds of shortest-road-per-component, each round in parallel */
+		BORUVKA
+	}
+
+	/** Largest number of roads Kruskal is used for when no method is given */
+	public static final int KRUSKAL_LIMIT = 50_000;
+
+	/** Marks a component with no road to another component in a Boruvka round */
+	private static final long NONE = Long.MAX_VALUE;
+
+	// Variables
+	private final Set<Road> roads;
+	private final long totalWeight;
+	private final int treeCount;
+	private final Method method;
+
+	/**
+	 * Constructor, picks the algorithm from the number of roads
+	 * @param graph the graph to span
+	 */
+	public SpanningForest(GraphInterface<Town, Road> graph) {
+		this(graph, graph.edgeSet().size() <= KRUSKAL_LIMIT? Method.KRUSKAL: Method.BORUVKA);
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the graph to span
+	 * @param method the algorithm to use
+	 */
+	public SpanningForest(GraphInterface<Town, Road> graph, Method method) {
+		this.method = method;
+		int n = graph.vertexSet().size();
+		Map<Town, Integer> ids = new HashMap<>(n * 2);
+		for (Town t: graph.vertexSet()) {
+			ids.put(t, ids.size());
+		}
+		Road[] edges = graph.edgeSet().toArray(new Road[0]);
+		boolean[] selected = method == Method.KRUSKAL? kruskal(edges, ids, n): boruvka(edges, ids, n);
+
+		Set<Road> forest = new HashSet<>();
+		long total = 0;
+		for (int e = 0; e < edges.length; e++) {
+			if (selected[e]) {
+				forest.add(edges[e]);
+				total += edges[e].getWeight();
+			}
+		}
+		roads = Collections.unmodifiableSet(forest);
+		totalWeight = total;
+		treeCount = n - forest.size();
+	}
+
+	/**
+	 * Return the roads of the forest
+	 * @return roads an unmodifiable set of the roads
+	 */
+	public Set<Road> getRoads() {
+		return roads;
+	}
+
+	/**
+	 * Return the total distance of the roads of the forest
+	 */
+	public long getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Return the number of trees, one per connected component of the graph
+	 */
+	public int getTreeCount() {
+		return treeCount;
+	}
+
+	/**
+	 * Return the algorithm used to build the forest
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Kruskal: the roads by distance, then by name, each kept if its towns are not yet connected
+	 * @param edges the roads of the graph
+	 * @param ids town -> town id
+	 * @param n the number of towns
+	 * @return selected road index -> true if the road is in the forest
+	 */
+	private static boolean[] kruskal(Road[] edges, Map<Town, Integer> ids, int n) {
+		Integer[] order = new Integer[edges.length];
+		for (int e = 0; e < order.length; e++) {
+			order[e] = e;
+		}
+		Arrays.sort(order, Comparator.<Integer>comparingInt(e -> edges[e].getWeight())
+				.thenComparing(e -> edges[e]));
+		int[] parents = new int[n];
+		for (int v = 0; v < n; v++) {
+			parents[v] = v;
+		}
+		boolean[] selected = new boolean[edges.length];
+		int joins = 0;
+		for (int e: order) {
+			int root1 = find(parents, ids.get(edges[e].getSource()));
+			int root2 = find(parents, ids.get(edges[e].getDestination()));
+			if (root1 != root2) {
+				parents[root2] = root1;
+				selected[e] = true;
+				if (++joins == n - 1) {
+					break; // A single tree spans every town
+				}
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Boruvka. Each round scans the roads still joining two components in parallel, and every
+	 * component keeps the least (distance, road index) key seen through a compare-and-set on a
+	 * shared array. The chosen roads then merge their components and the roads left inside a
+	 * component are dropped for the next round
+	 * @param edges the roads of the graph
+	 * @param ids town -> town id
+	 * @param n the number of towns
+	 * @return selected road index -> true if the road is in the forest
+	 */
+	private static boolean[] boruvka(Road[] edges, Map<Town, Integer> ids, int n) {
+		int[] from = new int[edges.length];
+		int[] to = new int[edges.length];
+		int[] weights = new int[edges.length];
+		IntStream.range(0, edges.length).parallel().forEach(e -> {
+			from[e] = ids.get(edges[e].getSource());
+			to[e] = ids.get(edges[e].getDestination());
+			weights[e] = edges[e].getWeight();
+		});
+
+		int[] components = new int[n]; // town id -> id of the town standing for its component
+		int[] parents = new int[n]; // union-find over the component ids
+		for (int v = 0; v < n; v++) {
+			components[v] = v;
+			parents[v] = v;
+		}
+		boolean[] selected = new boolean[edges.length];
+		AtomicLongArray best = new AtomicLongArray(n); // component id -> least key of a road leaving it
+		int[] live = IntStream.range(0, edges.length).filter(e -> from[e] != to[e]).toArray();
+		int[] roots = IntStream.range(0, n).toArray();
+
+		while (live.length > 0) {
+			for (int r: roots) {
+				best.set(r, NONE);
+			}
+			final int[] scan = live;
+			IntStream.range(0, scan.length).parallel().forEach(i -> {
+				int e = scan[i];
+				long key = ((long) weights[e] << 32) | e; // distance first, then road index
+				lower(best, components[from[e]], key);
+				lower(best, components[to[e]], key);
+			});
+
+			// Merge along the chosen roads; the key order leaves no cycle, the union-find checks anyway
+			for (int r: roots) {
+				long key = best.get(r);
+				if (key == NONE) {
+					continue;
+				}
+				int e = (int) key;
+				int root1 = find(parents, components[from[e]]);
+				int root2 = find(parents, components[to[e]]);
+				if (root1 != root2) {
+					parents[root2] = root1;
+					selected[e] = true;
+				}
+			}
+			for (int r: roots) {
+				parents[r] = find(parents, r); // Every old root points straight at its new root
+			}
+			IntStream.range(0, n).parallel().forEach(v -> components[v] = parents[components[v]]);
+			roots = IntStream.of(roots).filter(r -> parents[r] == r).toArray();
+			live = IntStream.of(live).parallel().filter(e -> components[from[e]] != components[to[e]]).toArray();
+		}
+		return selected;
+	}
+
+	/**
+	 * Lower the key of a component if the given key is smaller
+	 * @param best component id -> least key
+	 * @param component the component id
+	 * @param key the key of a road leaving the component
+	 */
+	private static void lower(AtomicLongArray best, int component, long key) {
+		long current = best.get(component);
+		while (key < current && best.compareAndSet(component, current, key) == false) {
+			current = best.get(component);
+		}
+	}
+
+	/**
+	 * Return the root of a union-find tree, halving the path on the way
+	 * @param parents id -> parent id
+	 * @param v the id to look up
+	 */
+	private static int find(int[] parents, int v) {
+		while (parents[v] != v) {
+			parents[v] = parents[parents[v]];
+			v = parents[v];
+		}
+		return v;
+	}
+
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SpanningForest_STUDENT_Test {
+	private Graph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new Graph();
+		town = SampleTowns.addTo(graph);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testKruskal() {
+		SpanningForest forest = new SpanningForest(graph, SpanningForest.Method.KRUSKAL);
+		assertEquals(SpanningForest.Method.KRUSKAL, forest.getMethod());
+		assertEquals(10, forest.getRoads().size());
+		assertEquals(2, forest.getTreeCount());
+		assertEquals(29, forest.getTotalWeight());
+		assertFalse(forest.getRoads().contains(graph.getEdge(town[2], town[11])));
+		assertFalse(forest.getRoads().contains(graph.getEdge(town[1], town[5])));
+	}
+
+	@Test
+	public void testBoruvka() {
+		SpanningForest forest = new SpanningForest(graph, SpanningForest.Method.BORUVKA);
+		assertEquals(new SpanningForest(graph, SpanningForest.Method.KRUSKAL).getRoads(), forest.getRoads());
+		assertEquals(29, forest.getTotalWeight());
+		assertEquals(2, forest.getTreeCount());
+	}
+
+	@Test
+	public void testSameTotalWeight() {
+		Graph big = new Graph();
+		Town[] towns = new Town[2000];
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("T" + i);
+			big.addVertex(towns[i]);
+		}
+		Random random = new Random(5);
+		for (int i = 0; i < 6000; i++) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a != b) {
+				big.addEdge(towns[a], towns[b], random.nextInt(10), "R" + i);
+			}
+		}
+		SpanningForest kruskal = new SpanningForest(big, SpanningForest.Method.KRUSKAL);
+		SpanningForest boruvka = new SpanningForest(big, SpanningForest.Method.BORUVKA);
+		assertEquals(kruskal.getTotalWeight(), boruvka.getTotalWeight());
+		assertEquals(kruskal.getTreeCount(), boruvka.getTreeCount());
+		assertEquals(big.componentSizes().size(), boruvka.getTreeCount());
+		Set<Road> roads = boruvka.getRoads();
+		assertEquals(towns.length - boruvka.getTreeCount(), roads.size());
+	}
+
+	@Test
+	public void testUnmodifiable() {
+		try {
+			graph.spanningForest().getRoads().clear();
+			fail("The roads of a forest can be changed");
+		}
+		catch (UnsupportedOperationException e) {
+			assertTrue(true);
+		}
+	}
+}
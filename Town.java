@@ -17,6 +17,8 @@ public class Town implements Comparable<Town> {
 	private int weight;
 	private Town previousTown;
 	private Set<Town> towns;
+	private double x, y; // position of the town, only meaningful when hasCoordinates is true
+	private boolean hasCoordinates;
 	
 	/**
 	 * Constructor
@@ -29,6 +31,17 @@ public class Town implements Comparable<Town> {
 		towns = new HashSet<>();
 	}
 	
+	/**
+	 * Constructor for a town with a position
+	 * @param townName the name of the town
+	 * @param x the x coordinate (or longitude) of the town
+	 * @param y the y coordinate (or latitude) of the town
+	 */
+	public Town(String townName, double x, double y) {
+		this(townName);
+		setCoordinates(x, y);
+	}
+	
 	/**
 	 * Copy constructor
 	 * @param templateTown an instance of Town
@@ -38,6 +51,9 @@ public class Town implements Comparable<Town> {
 		this.weight = templateTown.weight;
 		this.previousTown = templateTown.previousTown;
 		this.towns = templateTown.towns;
+		this.x = templateTown.x;
+		this.y = templateTown.y;
+		this.hasCoordinates = templateTown.hasCoordinates;
 	}
 	
 	public void reset() {
@@ -109,6 +125,50 @@ public class Town implements Comparable<Town> {
 		this.towns = towns;
 	}
 
+	/**
+	 * Return true if the town has a position
+	 */
+	public boolean hasCoordinates() {
+		return hasCoordinates;
+	}
+
+	/**
+	 * Get the x coordinate (or longitude) of the town
+	 * @return x the x coordinate of the town
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Get the y coordinate (or latitude) of the town
+	 * @return y the y coordinate of the town
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Set the position of the town. Once the town is in a graph, use Graph.setCoordinates
+	 * so the graph knows the position changed
+	 * @param x the x coordinate (or longitude) of the town
+	 * @param y the y coordinate (or latitude) of the town
+	 */
+	public void setCoordinates(double x, double y) {
+		this.x = x;
+		this.y = y;
+		hasCoordinates = true;
+	}
+
+	/**
+	 * Return the straight-line distance to another town, both must have coordinates
+	 * @param o the other town
+	 * @return the distance between the positions of the towns
+	 */
+	public double distanceTo(Town o) {
+		return Math.hypot(x - o.x, y - o.y);
+	}
+
 	/**
 	 * Returns the town's name
 	 * @return townName the town's name
@@ -1,19 +1,32 @@
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class TownGraphManager implements TownGraphManagerInterface {
 
+	/** Line that starts the town coordinates section of a road file */
+	public static final String COORDINATES_SECTION = "[coordinates]";
+
 	// Variables
 	private Graph graph = new Graph();
+	private Map<String, Town> townsByName = new HashMap<>(); // name -> town in the graph
+	private SearchMode searchMode = SearchMode.DIJKSTRA;
+	private PathCache pathCache; // null unless enabled
+	private MutationJournal journal; // null unless recovered from a journal
 
 	/**
 	 * Add a road to the graph
@@ -27,12 +40,55 @@ public class TownGraphManager implements TownGraphManagerInterface {
 		if (town1 == null || town2 == null) {
 			return false;
 		}
-		if (graph.addEdge(getTown(town1), getTown(town2), weight, roadName) != null) {
+		return addRoad(getTown(town1), getTown(town2), weight, roadName);
+	}
+
+	/**
+	 * Add a road between two towns of the graph
+	 * @param town1 the source town
+	 * @param town2 the destination town
+	 * @param weight distance from the source town to the destination town
+	 * @param roadName name of the road
+	 */
+	private boolean addRoad(Town town1, Town town2, int weight, String roadName) {
+		if (town1 != null && town2 != null && graph.containsVertex(town1) && graph.containsVertex(town2)) {
+			writeAhead(j -> j.addRoad(town1.getName(), town2.getName(), weight, roadName));
+		}
+		if (graph.addEdge(town1, town2, weight, roadName) != null) {
+			if (pathCache != null) {
+				pathCache.roadAdded(town1.getName(), town2.getName(), weight);
+			}
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Change the distance of the road between two towns
+	 * @param town1 one end of the road
+	 * @param town2 the other end of the road
+	 * @param weight the new distance
+	 * @return true if the road exists, false otherwise
+	 */
+	public boolean setRoadWeight(String town1, String town2, int weight) {
+		Town t1 = getTown(town1);
+		Town t2 = getTown(town2);
+		if (t1 == null || t2 == null || graph.containsEdge(t1, t2) == false) {
+			return false;
+		}
+		writeAhead(j -> j.setRoadWeight(town1, town2, weight));
+		Road road = graph.getEdge(t1, t2);
+		int old = road.getWeight();
+		road.setWeight(weight);
+		if (pathCache != null && weight < old) {
+			pathCache.roadAdded(town1, town2, weight);
+		}
+		else if (pathCache != null && weight > old) {
+			pathCache.roadRemoved(town1, town2);
+		}
+		return true;
+	}
+
 	/**
 	 * Return the name of the road that connects the two towns
 	 * @param town1 the source town name
@@ -49,7 +105,16 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public boolean addTown(String town) {
-		return graph.addVertex(new Town(town));
+		if (townsByName.containsKey(town)) {
+			return false;
+		}
+		writeAhead(j -> j.addTown(town));
+		Town t = new Town(town);
+		if (graph.addVertex(t)) {
+			townsByName.put(town, t);
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -58,7 +123,7 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public boolean containsTown(String townName) {
-		return graph.containsVertex(new Town(townName));
+		return townsByName.containsKey(townName);
 	}
 
 	/**
@@ -87,7 +152,15 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public boolean deleteRoadConnection(String town1, String town2, String road) {
-		if (graph.removeEdge(new Town(town1), new Town(town2), 0, road) != null) {
+		Town t1 = new Town(town1);
+		Town t2 = new Town(town2);
+		if (road != null && graph.containsEdge(t1, t2)) {
+			writeAhead(j -> j.deleteRoad(town1, town2, road));
+		}
+		if (graph.removeEdge(t1, t2, 0, road) != null) {
+			if (pathCache != null) {
+				pathCache.roadRemoved(town1, town2);
+			}
 			return true;
 		}
 		return false;
@@ -99,7 +172,18 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public boolean deleteTown(String town) {
-		return graph.removeVertex(getTown(town));
+		Town t = getTown(town);
+		if (t != null) {
+			writeAhead(j -> j.deleteTown(town));
+		}
+		if (graph.removeVertex(t)) {
+			townsByName.remove(town);
+			if (pathCache != null) {
+				pathCache.townRemoved(town);
+			}
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -117,7 +201,189 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public ArrayList<String> getPath(String town1, String town2) {
-		return graph.shortestPath(getTown(town1), getTown(town2));
+		return getPath(town1, town2, searchMode);
+	}
+
+	/**
+	 * Return the shortest path from town1 to town2 found with the given search algorithm
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @param mode the search algorithm to use for this query
+	 */
+	public ArrayList<String> getPath(String town1, String town2, SearchMode mode) {
+		return getRoute(town1, town2, mode).toPaths();
+	}
+
+	/**
+	 * Return the shortest route from town1 to town2 without building its path Strings, for callers
+	 * that only need the distance or the towns passed
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @return the route, Route.NONE if either town is missing or town2 cannot be reached
+	 */
+	public Route getRoute(String town1, String town2) {
+		return getRoute(town1, town2, searchMode);
+	}
+
+	/**
+	 * Return the shortest route from town1 to town2 found with the given search algorithm
+	 * @param town1 the source town name
+	 * @param town2 the destination town name
+	 * @param mode the search algorithm to use for this query
+	 * @return the route, Route.NONE if either town is missing or town2 cannot be reached
+	 */
+	public Route getRoute(String town1, String town2, SearchMode mode) {
+		Town source = getTown(town1);
+		Town destination = getTown(town2);
+		if (pathCache == null || source == null || destination == null) {
+			return graph.shortestRoute(source, destination, mode);
+		}
+		// Every mode finds a shortest route, so the cache is shared by all of them
+		Route route = pathCache.get(town1, town2);
+		if (route == null) {
+			route = graph.shortestRoute(source, destination, mode);
+			pathCache.put(town1, town2, route);
+		}
+		return route;
+	}
+
+	/**
+	 * Keep the results of getPath in a cache of the given size, replacing any cache in use
+	 * @param capacity the most town pairs to keep
+	 * @return the cache, which counts its hits, misses and evictions
+	 */
+	public PathCache enablePathCache(int capacity) {
+		pathCache = new PathCache(capacity);
+		return pathCache;
+	}
+
+	/**
+	 * Stop caching the results of getPath
+	 */
+	public void disablePathCache() {
+		pathCache = null;
+	}
+
+	/**
+	 * Return the cache of getPath results
+	 * @return pathCache the cache, or null if it is not enabled
+	 */
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+
+	/**
+	 * Build the Contraction Hierarchy used by the CONTRACTION_HIERARCHY search mode now, rather
+	 * than on the first query
+	 * @return the hierarchy, which reports its preprocessing time and shortcut count
+	 */
+	public ContractionHierarchy prepareContractionHierarchy() {
+		return graph.contractionHierarchy();
+	}
+
+	/**
+	 * Return the shortest distance between every pair of towns
+	 * @return the distance matrix, indexed by town id; getGraph().idOf gives the id of a town
+	 */
+	public DistanceMatrix distanceMatrix() {
+		return graph.distanceMatrix();
+	}
+
+	/**
+	 * Return true if a path of roads joins the two towns
+	 * @param town1 name of one town
+	 * @param town2 name of the other town
+	 */
+	public boolean isConnected(String town1, String town2) {
+		Town t1 = getTown(town1);
+		Town t2 = getTown(town2);
+		return t1 != null && t2 != null && graph.isConnected(t1, t2);
+	}
+
+	/**
+	 * Return the number of towns in each connected part of the road network
+	 * @return sizes an arraylist of the sizes, largest first
+	 */
+	public ArrayList<Integer> componentSizes() {
+		return graph.componentSizes();
+	}
+
+	/**
+	 * Return the shortest set of roads that keeps every connected pair of towns connected
+	 * @return the minimum spanning forest, with its roads and total distance
+	 */
+	public SpanningForest spanningForest() {
+		return graph.spanningForest();
+	}
+
+	/**
+	 * Return the towns within the given distance of a town, closest first
+	 * @param town name of the town the distances are measured from
+	 * @param miles the largest distance to report
+	 * @return towns town name -> distance, in order of distance
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public LinkedHashMap<String, Integer> reachableWithin(String town, int miles) {
+		LinkedHashMap<String, Integer> towns = new LinkedHashMap<>();
+		graph.reachableWithin(getTown(town), miles, (t, distance) -> towns.put(t.getName(), distance));
+		return towns;
+	}
+
+	/**
+	 * Return the shortest paths from a town to every town, to read many paths from one search
+	 * @param town name of the town the paths start from
+	 * @return the shortest path tree
+	 * @throws IllegalArgumentException if the town is not in the graph
+	 */
+	public ShortestPathTree shortestPathTree(String town) {
+		return graph.shortestPathTree(getTown(town));
+	}
+
+	/**
+	 * Return the shortest distances from each origin to each destination, as one search per
+	 * origin that stops once every destination is reached, run in parallel across origins
+	 * @param origins names of the towns where the paths start
+	 * @param destinations names of the towns where the paths end
+	 * @return table origin index -> destination index -> distance, CompactGraph.UNREACHABLE if
+	 * there is no path
+	 * @throws IllegalArgumentException if a town is not in the graph
+	 */
+	public int[][] distanceTable(List<String> origins, List<String> destinations) {
+		CompactGraph snapshot = graph.snapshot();
+		return snapshot.distanceTable(townIds(snapshot, origins), townIds(snapshot, destinations));
+	}
+
+	/**
+	 * Return the ids of the towns in the snapshot
+	 * @param snapshot the snapshot of the graph
+	 * @param townNames names of the towns
+	 * @throws IllegalArgumentException if a town is not in the graph
+	 */
+	private static int[] townIds(CompactGraph snapshot, List<String> townNames) {
+		int[] ids = new int[townNames.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = snapshot.idOf(townNames.get(i));
+			if (ids[i] == -1) {
+				throw new IllegalArgumentException("Town not in the graph: " + townNames.get(i));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Return the search algorithm getPath uses
+	 * @return searchMode the search algorithm
+	 */
+	public SearchMode getSearchMode() {
+		return searchMode;
+	}
+
+	/**
+	 * Set the search algorithm getPath uses
+	 * @param searchMode the search algorithm
+	 */
+	public void setSearchMode(SearchMode searchMode) {
+		this.searchMode = searchMode;
 	}
 
 	/**
@@ -126,34 +392,233 @@ public class TownGraphManager implements TownGraphManagerInterface {
 	 */
 	@Override
 	public Town getTown(String townName) {
-		Set<Town> towns = graph.vertexSet();
-		Town town = null;
-		for (Town t: towns) {
-			if (t.getName().equals(townName)) {
-				town = t;
-			}
+		return townsByName.get(townName);
+	}
+
+	/**
+	 * Set the position of a town, used by the A* search mode
+	 * @param townName name of the town
+	 * @param x the x coordinate (or longitude) of the town
+	 * @param y the y coordinate (or latitude) of the town
+	 * @return true if the town is in the graph, false otherwise
+	 */
+	public boolean setTownCoordinates(String townName, double x, double y) {
+		Town town = getTown(townName);
+		if (town == null) {
+			return false;
 		}
-		return town;
+		writeAhead(j -> j.setCoordinates(townName, x, y));
+		return graph.setCoordinates(town, x, y);
 	}
 
 	/**
-	 * Read from a file
+	 * Read from a file. Each line is a road of the form "road,miles;town A;town B". The file may end
+	 * with a section starting with the line "[coordinates]" in which each line places a town, 
+	 * in the form "town;x;y"
 	 * @param selectedFile file to select
 	 * @throws FileNotFoundException exception thrown
 	 */
 	public void populateTownGraph(File selectedFile) throws FileNotFoundException {
-		// Variables
-		InputStream stream = new FileInputStream(selectedFile);
-		BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-		reader.lines().map(str -> str.split(";|\\,")).forEach(array -> 
-		{addTown(array[2]); 
-		addTown(array[3]); 
-		addRoad(array[2], array[3], Integer.parseInt(array[1]),array[0]);});
-		try {
-			reader.close();
+		RoadFileParser parser = new RoadFileParser(loader());
+		try (InputStream stream = new FileInputStream(selectedFile)) {
+			parser.parse(stream);
+		} catch (FileNotFoundException e) {
+			throw e;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Read from a file in the same form as populateTownGraph, parsing it on every core of the
+	 * common fork-join pool. The file is memory-mapped and cut into chunks at line breaks; the
+	 * graph is built from the parsed chunks once they are all done
+	 * @param selectedFile file to read
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line is malformed, in which case the graph is unchanged
+	 */
+	public void populateTownGraphParallel(File selectedFile) throws IOException {
+		new MappedRoadFileLoader().load(selectedFile, loader());
+	}
+
+	/**
+	 * Save the towns and roads of the graph to a binary snapshot file, which loadSnapshot reads back
+	 * far faster than a road file
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(File file) throws IOException {
+		new GraphSnapshot(graph).write(file);
+	}
+
+	/**
+	 * Rebuild the graph after a crash from its last snapshot and the journal of the changes made
+	 * since, then keep journaling every change made to the graph. A torn record at the end of the
+	 * journal, from a change that was never made durable, is dropped
+	 * @param snapshot the snapshot written by checkpoint, which may not exist
+	 * @param journal the journal file, which may not exist
+	 * @param groupSize the number of changes forced to disk together, 1 to force every change
+	 * @param maxDelay the longest time in milliseconds a change waits to be forced
+	 * @return the number of changes replayed from the journal
+	 * @throws IOException if either file cannot be read or the journal cannot be opened
+	 */
+	public int recover(File snapshot, File journal, int groupSize, long maxDelay) throws IOException {
+		closeJournal();
+		if (snapshot.exists()) {
+			loadSnapshot(snapshot);
+		}
+		int replayed = MutationJournal.replay(journal, this);
+		this.journal = new MutationJournal(journal, groupSize, maxDelay);
+		return replayed;
+	}
+
+	/**
+	 * Save the graph as the snapshot recover reads, then empty the journal. The snapshot is written
+	 * to a temporary file, forced to disk and moved over the old one, so a crash leaves the old
+	 * snapshot or the new one, each with a journal recover can replay over it
+	 * @param snapshot the snapshot file
+	 * @throws IOException if the snapshot or the journal cannot be written
+	 * @throws IllegalStateException if no journal is open
+	 */
+	public void checkpoint(File snapshot) throws IOException {
+		if (journal == null) {
+			throw new IllegalStateException("No journal is open");
+		}
+		File temporary = new File(snapshot.getPath() + ".tmp");
+		saveSnapshot(temporary); // Forced to disk before it replaces the old snapshot
+		Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		// The journal is only emptied once the rename is durable. A crash before that replays the
+		// whole journal over the new snapshot, which leaves it as it is
+		syncDirectory(snapshot.getAbsoluteFile().getParentFile());
+		journal.reset();
+	}
+
+	/**
+	 * Record a change in the journal, if one is open, before it is made. If the record cannot be
+	 * written the change is not made
+	 * @param record writes the record of the change
+	 * @throws UncheckedIOException if the journal cannot be written
+	 */
+	private void writeAhead(JournalRecord record) {
+		if (journal != null) {
+			try {
+				record.writeTo(journal);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Force the entries of a directory to disk, so a file renamed into it stays renamed after a crash
+	 * @param directory the directory
+	 * @throws IOException if the directory cannot be forced
+	 */
+	private static void syncDirectory(File directory) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+		catch (AccessDeniedException e) {
+			// Windows cannot open a directory, and makes a rename durable without it
+		}
+	}
+
+	/**
+	 * Force the changes waiting in the journal to disk
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void syncJournal() throws IOException {
+		if (journal != null) {
+			journal.sync();
+		}
+	}
+
+	/**
+	 * Force the waiting changes to disk and stop journaling
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void closeJournal() throws IOException {
+		if (journal != null) {
+			try {
+				journal.close();
+			}
+			finally {
+				journal = null;
+			}
+		}
+	}
+
+	/**
+	 * Add the towns and roads of a snapshot file written by saveSnapshot to the graph. The file is
+	 * read and checked in full before the graph is changed
+	 * @param file the file to read
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public void loadSnapshot(File file) throws IOException {
+		GraphSnapshot snapshot = GraphSnapshot.read(file);
+		Town[] towns = new Town[snapshot.townCount()];
+		for (int i = 0; i < towns.length; i++) {
+			String name = snapshot.townName(i);
+			addTown(name);
+			towns[i] = getTown(name);
+			if (snapshot.hasCoordinates(i)) {
+				setTownCoordinates(name, snapshot.getX(i), snapshot.getY(i));
+			}
+		}
+		for (int road = 0; road < snapshot.roadCount(); road++) {
+			addRoad(towns[snapshot.roadSource(road)], towns[snapshot.roadDestination(road)],
+					snapshot.roadWeight(road), snapshot.roadName(road));
+		}
+	}
+
+	/**
+	 * Write a read-only image of the graph that GraphImage.open maps in place, for processes that
+	 * only query the graph
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveImage(File file) throws IOException {
+		GraphImage.write(graph.snapshot(), file);
+	}
+
+	/**
+	 * Return a handler that adds what a road file holds to the graph
+	 */
+	private RoadFileParser.Handler loader() {
+		return new RoadFileParser.Handler() {
+			@Override
+			public void road(String road, int miles, String town1, String town2) {
+				addRoad(townNamed(town1), townNamed(town2), miles, road);
+			}
+
+			@Override
+			public void coordinates(String town, double x, double y) {
+				townNamed(town);
+				setTownCoordinates(town, x, y);
+			}
+		};
+	}
+
+	/**
+	 * Return the town with the given name, adding it first if it is not in the graph. A town
+	 * already in the graph is found without making a new Town
+	 * @param townName name of the town
+	 */
+	private Town townNamed(String townName) {
+		Town town = townsByName.get(townName);
+		if (town == null) {
+			addTown(townName);
+			town = townsByName.get(townName);
+		}
+		return town;
+	}
+
+	/**
+	 * Writes the record of one change to the journal
+	 */
+	private interface JournalRecord {
+		void writeTo(MutationJournal journal) throws IOException;
+	}
+
 }
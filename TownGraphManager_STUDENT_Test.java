@@ -1,6 +1,10 @@
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 
 import org.junit.After;
 import org.junit.Before;
@@ -158,4 +162,98 @@ public class TownGraphManager_STUDENT_Test {
 
 	}
 
+	@Test
+	public void testGetTown() {
+		assertEquals("Town_3", graph.getTown(town[3]).getName());
+		assertNull(graph.getTown("Town_12"));
+		graph.deleteTown(town[3]);
+		assertNull(graph.getTown(town[3]));
+		graph.addTown(town[3]);
+		assertEquals("Town_3", graph.getTown(town[3]).getName());
+	}
+
+	@Test
+	public void testSearchMode() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		assertEquals(SearchMode.DIJKSTRA, manager.getSearchMode());
+		ArrayList<String> path = manager.getPath(town[1], town[6]);
+		manager.setSearchMode(SearchMode.BIDIRECTIONAL);
+		assertEquals(path, manager.getPath(town[1], town[6]));
+		assertEquals(path, manager.getPath(town[1], town[6], SearchMode.DIJKSTRA));
+	}
+
+	@Test
+	public void testPopulateTownGraphWithCoordinates() throws Exception {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		PrintWriter writer = new PrintWriter(file);
+		writer.println("Route 1,5;Alpha;Beta");
+		writer.println("Route 2,4;Beta;Gamma");
+		writer.println("Route 3,12;Alpha;Gamma");
+		writer.println(TownGraphManager.COORDINATES_SECTION);
+		writer.println("Alpha;0;0");
+		writer.println("Beta;3;4");
+		writer.println("Gamma;6;0");
+		writer.close();
+
+		TownGraphManager manager = new TownGraphManager();
+		manager.populateTownGraph(file);
+		assertEquals(3, manager.allRoads().size());
+		assertTrue(manager.getTown("Beta").hasCoordinates());
+		assertEquals(4.0, manager.getTown("Beta").getY(), 0.0);
+		ArrayList<String> path = manager.getPath("Alpha", "Gamma", SearchMode.ASTAR);
+		assertEquals("Alpha via Route 1 to Beta 5 mi", path.get(0));
+		assertEquals("Beta via Route 2 to Gamma 4 mi", path.get(1));
+	}
+
+	@Test
+	public void testGetRoute() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		Route route = manager.getRoute(town[1], town[10]);
+		assertEquals(8, route.getDistance());
+		assertEquals(3, route.size());
+		assertEquals(town[8], route.getTown(2));
+		assertEquals(manager.getPath(town[1], town[10]), route.toPaths());
+		assertSame(Route.NONE, manager.getRoute(town[1], "Town_13"));
+	}
+
+	@Test
+	public void testContractionHierarchyMode() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		ArrayList<String> path = manager.getPath(town[1], town[6]);
+		assertTrue(manager.prepareContractionHierarchy().getShortcutCount() >= 0);
+		manager.setSearchMode(SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals(path, manager.getPath(town[1], town[6]));
+	}
+
+	@Test
+	public void testDistanceTable() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.addTown("Town_12");
+		int[][] table = manager.distanceTable(Arrays.asList(town[1], town[4], "Town_12"), 
+				Arrays.asList(town[11], town[6], town[7], town[4]));
+		assertArrayEquals(new int[] {8, 15, 5, 9}, table[0]);
+		assertArrayEquals(new int[] {8, 12, 6, 0}, table[1]);
+		assertEquals(CompactGraph.UNREACHABLE, table[2][0]);
+		assertEquals(0, manager.distanceTable(Arrays.asList(town[1]), new ArrayList<String>())[0].length);
+	}
+
+	@Test
+	public void testDistanceTableUnknownTown() {
+		try {
+			((TownGraphManager) graph).distanceTable(Arrays.asList(town[1]), Arrays.asList("Town_13"));
+			fail("No exception for a town not in the graph");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(true);
+		}
+	}
+
+	@Test
+	public void testReachableWithin() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		LinkedHashMap<String, Integer> reached = manager.reachableWithin(town[6], 8);
+		assertEquals(Arrays.asList(town[6], town[9], town[10]), new ArrayList<>(reached.keySet()));
+		assertEquals(Integer.valueOf(7), reached.get(town[10]));
+	}
 }
\ No newline at end of file